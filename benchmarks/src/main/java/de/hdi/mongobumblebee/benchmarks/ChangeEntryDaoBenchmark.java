@@ -0,0 +1,102 @@
+package de.hdi.mongobumblebee.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.client.MongoClient;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.dao.ChangeEntryDao;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeException;
+
+/**
+ * Throughput of the changelog collection access against an embedded mongod
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeEntryDaoBenchmark {
+
+	private static final String CHANGELOG_COLLECTION_NAME = "benchmarkchangelog";
+	private static final String LOCK_COLLECTION_NAME = "benchmarklock";
+	private static final int APPLIED_CHANGESETS = 1000;
+
+	@Param({ "false", "true" })
+	boolean preloadChangeLog;
+
+	@Param({ "1", "100" })
+	int changeLogBatchSize;
+
+	private MongoClient mongoClient;
+	private ChangeEntryDao dao;
+	private ChangeEntry applied;
+	private ChangeEntry pending;
+	private final AtomicLong sequence = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setup() throws MongoBumblebeeException {
+		mongoClient = EmbeddedMongo.startMongoClient();
+		mongoClient.getDatabase(EmbeddedMongo.DB_NAME).getCollection(CHANGELOG_COLLECTION_NAME).drop();
+
+		dao = new ChangeEntryDao(CHANGELOG_COLLECTION_NAME, LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.setPreloadChangeLog(preloadChangeLog);
+		dao.setChangeLogBatchSize(changeLogBatchSize);
+		dao.connectMongoDb(mongoClient, EmbeddedMongo.DB_NAME);
+
+		for (int i = 0; i < APPLIED_CHANGESETS; i++) {
+			dao.save(entry("applied-" + i));
+		}
+		dao.flushChangeLog();
+		dao.loadChangeLog();
+
+		applied = entry("applied-" + APPLIED_CHANGESETS / 2);
+		pending = entry("pending");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws MongoBumblebeeException {
+		dao.flushChangeLog();
+		mongoClient.getDatabase(EmbeddedMongo.DB_NAME).getCollection(CHANGELOG_COLLECTION_NAME).drop();
+		mongoClient.close();
+	}
+
+	private static ChangeEntry entry(String changeId) {
+		return new ChangeEntry(changeId, "benchmark", new Date(), ChangeEntryDaoBenchmark.class.getName(), "changeSet", null);
+	}
+
+	@Benchmark
+	public boolean isNewChangeApplied() throws MongoBumblebeeException {
+		return dao.isNewChange(applied);
+	}
+
+	@Benchmark
+	public boolean isNewChangePending() throws MongoBumblebeeException {
+		return dao.isNewChange(pending);
+	}
+
+	@Benchmark
+	public void save() throws MongoBumblebeeException {
+		dao.save(entry("saved-" + sequence.incrementAndGet()));
+	}
+
+}
@@ -0,0 +1,101 @@
+package de.hdi.mongobumblebee.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.utils.ChangeLogComparator;
+import de.hdi.mongobumblebee.utils.ChangeService;
+import de.hdi.mongobumblebee.utils.ChangeSetComparator;
+
+/**
+ * Discovery of changelogs and changesets depending on the number of changelog classes, with and without changelog index
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeServiceBenchmark {
+
+	private static final int CHANGESETS_PER_CHANGELOG = 10;
+
+	@Param({ "10", "100", "1000" })
+	int changeLogs;
+
+	@Param({ "true", "false" })
+	boolean useChangeLogIndex;
+
+	private GeneratedChangeLogs generated;
+	private ChangeService service;
+	private Class<?> changeLog;
+	private List<Class<?>> shuffledChangeLogs;
+	private List<Method> shuffledChangeSets;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, ClassNotFoundException {
+		generated = new GeneratedChangeLogs(changeLogs, CHANGESETS_PER_CHANGELOG, useChangeLogIndex);
+		service = new ChangeService(GeneratedChangeLogs.PACKAGE, List.of(ChangeService.DEFAULT_PROFILE), useChangeLogIndex);
+
+		shuffledChangeLogs = new ArrayList<>(generated.loadClasses(changeLogs));
+		Collections.shuffle(shuffledChangeLogs, new Random(42));
+		changeLog = shuffledChangeLogs.get(0);
+
+		shuffledChangeSets = new ArrayList<>();
+		for (Class<?> type : shuffledChangeLogs) {
+			Collections.addAll(shuffledChangeSets, type.getDeclaredMethods());
+		}
+		Collections.shuffle(shuffledChangeSets, new Random(42));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		generated.close();
+	}
+
+	@Benchmark
+	public List<Class<?>> fetchChangeLogs() {
+		Thread.currentThread().setContextClassLoader(generated.getClassLoader());
+		return service.fetchChangeLogs();
+	}
+
+	@Benchmark
+	public List<Method> fetchChangeSets() throws MongoBumblebeeChangeSetException {
+		return service.fetchChangeSets(changeLog);
+	}
+
+	@Benchmark
+	public List<Class<?>> sortChangeLogs() {
+		List<Class<?>> changeLogs = new ArrayList<>(shuffledChangeLogs);
+		changeLogs.sort(new ChangeLogComparator());
+		return changeLogs;
+	}
+
+	@Benchmark
+	public List<Method> sortChangeSets() {
+		List<Method> changeSets = new ArrayList<>(shuffledChangeSets);
+		changeSets.sort(new ChangeSetComparator());
+		return changeSets;
+	}
+
+}
@@ -0,0 +1,37 @@
+package de.hdi.mongobumblebee.benchmarks;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.StateID;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+
+/**
+ * Embedded mongod shared by all benchmarks of a fork, the same as used by the MongoBumblebee tests
+ */
+final class EmbeddedMongo {
+
+	static final String DB_NAME = "MongoBumblebeeBenchmark";
+
+	private static TransitionWalker.ReachedState<RunningMongodProcess> runningMongod;
+
+	private EmbeddedMongo() {
+	}
+
+	static synchronized MongoClient startMongoClient() {
+		if (runningMongod == null) {
+			runningMongod = Mongod.instance().transitions(Version.Main.V7_0)
+				.replace(Start.to(MongodArguments.class).initializedWith(MongodArguments.defaults()))
+				.walker()
+				.initState(StateID.of(RunningMongodProcess.class));
+			Runtime.getRuntime().addShutdownHook(new Thread(runningMongod::close));
+		}
+		return MongoClients.create(String.format("mongodb://%s:%d/", runningMongod.current().getServerAddress().getHost(), runningMongod.current().getServerAddress().getPort()));
+	}
+
+}
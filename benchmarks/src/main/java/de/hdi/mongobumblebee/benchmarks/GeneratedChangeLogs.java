@@ -0,0 +1,115 @@
+package de.hdi.mongobumblebee.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import de.hdi.mongobumblebee.processor.ChangeLogIndexProcessor;
+
+/**
+ * Changelog classes with no-op changesets, generated and compiled at benchmark setup
+ */
+final class GeneratedChangeLogs implements AutoCloseable {
+
+	static final String PACKAGE = "de.hdi.mongobumblebee.benchmarks.generated";
+
+	private final Path directory;
+	private final URLClassLoader classLoader;
+
+	/**
+	 * @param changeLogs number of changelog classes
+	 * @param changeSetsPerChangeLog number of changesets of every changelog
+	 * @param withIndex compile with the MongoBumblebee annotation processor, so a changelog index is written
+	 */
+	GeneratedChangeLogs(int changeLogs, int changeSetsPerChangeLog, boolean withIndex) throws IOException {
+		this.directory = Files.createTempDirectory("mbb-benchmark");
+		Path sources = Files.createDirectories(directory.resolve("src").resolve(PACKAGE.replace('.', File.separatorChar)));
+		Path classes = Files.createDirectories(directory.resolve("classes"));
+
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < changeLogs; i++) {
+			String name = String.format("ChangeLog%05d", i);
+			files.add(Files.writeString(sources.resolve(name + ".java"), source(name, i, changeSetsPerChangeLog)));
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(files);
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, List.of("-classpath", System.getProperty("java.class.path"),
+					"-d", classes.toString(), withIndex ? "-proc:full" : "-proc:none"), null, units);
+			if (withIndex) {
+				task.setProcessors(List.of(new ChangeLogIndexProcessor()));
+			}
+			if (!task.call()) {
+				throw new IllegalStateException("Generated changelogs couldn't be compiled");
+			}
+		}
+		this.classLoader = new URLClassLoader(new URL[] { toUrl(classes) }, getClass().getClassLoader());
+	}
+
+	private static String source(String name, int order, int changeSets) {
+		StringBuilder source = new StringBuilder()
+				.append("package ").append(PACKAGE).append(";\n\n")
+				.append("import de.hdi.mongobumblebee.changeset.ChangeLog;\n")
+				.append("import de.hdi.mongobumblebee.changeset.ChangeSet;\n\n")
+				.append(String.format("@ChangeLog(order = \"%05d\")%n", order))
+				.append("public class ").append(name).append(" {\n");
+		for (int i = 0; i < changeSets; i++) {
+			source.append(String.format("%n\t@ChangeSet(author = \"benchmark\", id = \"%s-%05d\", order = \"%05d\")%n", name, i, i))
+				.append(String.format("\tpublic void changeSet%05d() {%n\t}%n", i));
+		}
+		return source.append("}\n").toString();
+	}
+
+	private static URL toUrl(Path path) {
+		try {
+			return path.toUri().toURL();
+		} catch (MalformedURLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Class loader of the generated changelogs. It has to be the context class loader while MongoBumblebee looks up changelogs.
+	 */
+	ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	List<Class<?>> loadClasses(int changeLogs) throws ClassNotFoundException {
+		List<Class<?>> classes = new ArrayList<>();
+		for (int i = 0; i < changeLogs; i++) {
+			classes.add(Class.forName(String.format("%s.ChangeLog%05d", PACKAGE, i), true, classLoader));
+		}
+		return classes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		classLoader.close();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					Files.delete(path);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package de.hdi.mongobumblebee.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeException;
+
+/**
+ * Complete migrations of no-op changesets against an embedded mongod. The time per operation divided by the number of changesets
+ * is the overhead MongoBumblebee adds to every changeset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MigrationBenchmark {
+
+	private static final int CHANGESETS_PER_CHANGELOG = 100;
+	private static final String CHANGELOG_COLLECTION_NAME = "benchmarkchangelog";
+	private static final String LOCK_COLLECTION_NAME = "benchmarklock";
+
+	@Param({ "100", "1000", "10000" })
+	int changeSets;
+
+	@Param({ "false", "true" })
+	boolean preloadChangeLog;
+
+	@Param({ "1", "100" })
+	int changeLogBatchSize;
+
+	private GeneratedChangeLogs generated;
+	private MongoClient mongoClient;
+	private MongoDatabase database;
+	private MongoBumblebee runner;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		generated = new GeneratedChangeLogs(changeSets / CHANGESETS_PER_CHANGELOG, CHANGESETS_PER_CHANGELOG, true);
+		mongoClient = EmbeddedMongo.startMongoClient();
+		database = mongoClient.getDatabase(EmbeddedMongo.DB_NAME);
+		runner = new MongoBumblebee(mongoClient, EmbeddedMongo.DB_NAME)
+				.setChangeLogsScanPackage(GeneratedChangeLogs.PACKAGE)
+				.setChangelogCollectionName(CHANGELOG_COLLECTION_NAME)
+				.setLockCollectionName(LOCK_COLLECTION_NAME)
+				.setPreloadChangeLog(preloadChangeLog)
+				.setChangeLogBatchSize(changeLogBatchSize);
+	}
+
+	@Setup(Level.Invocation)
+	public void clearChangeLog() {
+		database.getCollection(CHANGELOG_COLLECTION_NAME).deleteMany(new Document());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		database.drop();
+		mongoClient.close();
+		generated.close();
+	}
+
+	/**
+	 * Migration applying all changesets
+	 */
+	@Benchmark
+	public void execute() throws MongoBumblebeeException {
+		Thread.currentThread().setContextClassLoader(generated.getClassLoader());
+		runner.execute();
+	}
+
+}
@@ -0,0 +1,62 @@
+package de.hdi.mongobumblebee.reactive;
+
+import org.bson.Document;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeLockException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads and writes of the changelog collection, in the format of the blocking runner
+ */
+class ReactiveChangeEntryDao {
+
+	private final MongoCollection<Document> changeLogCollection;
+
+	ReactiveChangeEntryDao(MongoDatabase mongoDatabase, String changelogCollectionName) {
+		this.changeLogCollection = mongoDatabase.getCollection(changelogCollectionName);
+	}
+
+	Mono<Void> ensureChangeLogCollectionIndex() {
+		return Mono.from(changeLogCollection.createIndex(Indexes.ascending(ChangeEntry.KEY_CHANGEID, ChangeEntry.KEY_AUTHOR),
+				new IndexOptions().unique(true)))
+				.then(Mono.from(changeLogCollection.createIndex(Indexes.descending(ChangeEntry.KEY_TIMESTAMP),
+						new IndexOptions().name(MongoBumblebee.MB_PREFIX + "timestamp_idx"))))
+				.then(Mono.from(changeLogCollection.createIndex(Indexes.descending(ChangeEntry.KEY_DURATION),
+						new IndexOptions().name(MongoBumblebee.MB_PREFIX + "duration_idx").sparse(true))))
+				.then();
+	}
+
+	/**
+	 * @return true if the changeset has not been applied, partially executed and failed changesets are not applied
+	 */
+	Mono<Boolean> isNewChange(ChangeEntry changeEntry) {
+		return Mono.from(changeLogCollection.countDocuments(Filters.and(changeEntry.buildSearchQueryDBObject(),
+				Filters.nin(ChangeEntry.KEY_OUTCOME, ChangeEntry.OUTCOME_PARTIAL, ChangeEntry.OUTCOME_FAILED)))).map(count -> count == 0);
+	}
+
+	/**
+	 * Writes the entry of an executed changeset, replacing an earlier entry of the same changeset. The outcome of the entry tells
+	 * whether the changeset has been applied or failed. The entry of a process with a greater fencing token isn't overwritten, see
+	 * {@link ChangeEntry#buildFencedSearchQueryDBObject()}.
+	 */
+	Mono<Void> save(ChangeEntry changeEntry) {
+		return Mono.from(changeLogCollection.replaceOne(changeEntry.buildFencedSearchQueryDBObject(), changeEntry.buildFullDBObject(),
+				new ReplaceOptions().upsert(true)))
+				.onErrorMap(e -> e instanceof MongoWriteException writeException && writeException.getError().getCategory() == ErrorCategory.DUPLICATE_KEY,
+						e -> new MongoBumblebeeLockException("Changelog has been written by a process with a greater fencing token than " + changeEntry.getLockToken()
+								+ " of lock " + changeEntry.getLockId()))
+				.then();
+	}
+
+}
@@ -0,0 +1,115 @@
+package de.hdi.mongobumblebee.reactive;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.utils.ChangeSetInvoker;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Invocation of a changeset method of the reactive runner. Supported parameter types are {@link ReactiveMongoTemplate}
+ * (or {@link ReactiveMongoOperations}), the reactive {@link MongoDatabase}, {@link Environment} and {@link ApplicationContext}.
+ * If an application context is available, any other parameter is resolved as Spring bean of its type.
+ * <p>
+ * A changeset returning a {@link Publisher} is complete when the publisher completes, its last element is the result of the changeset.
+ */
+final class ReactiveChangeSetInvoker {
+
+	/**
+	 * Objects which may be passed to changeset methods
+	 */
+	@Value
+	@Builder
+	static class ReactiveChangeSetContext {
+		ReactiveMongoTemplate mongoTemplate;
+		MongoDatabase mongoDatabase;
+		Environment environment;
+		ApplicationContext applicationContext;
+	}
+
+	@Getter
+	private final Method method;
+	private final List<Function<ReactiveChangeSetContext, Object>> resolvers;
+
+	private ReactiveChangeSetInvoker(Method method, List<Function<ReactiveChangeSetContext, Object>> resolvers) {
+		this.method = method;
+		this.resolvers = resolvers;
+	}
+
+	/**
+	 * @param method changeset method
+	 * @param applicationContext application context to resolve beans from, may be null
+	 * @return invoker of the method
+	 * @throws MongoBumblebeeChangeSetException if a parameter can't be resolved
+	 */
+	static ReactiveChangeSetInvoker bind(Method method, ApplicationContext applicationContext) throws MongoBumblebeeChangeSetException {
+		List<Function<ReactiveChangeSetContext, Object>> resolvers = new ArrayList<>();
+		for (Class<?> type : method.getParameterTypes()) {
+			resolvers.add(resolver(method, type, applicationContext));
+		}
+		return new ReactiveChangeSetInvoker(method, List.copyOf(resolvers));
+	}
+
+	private static Function<ReactiveChangeSetContext, Object> resolver(Method method, Class<?> type, ApplicationContext applicationContext) throws MongoBumblebeeChangeSetException {
+		if (type.equals(ReactiveMongoTemplate.class) || type.equals(ReactiveMongoOperations.class)) {
+			return ReactiveChangeSetContext::getMongoTemplate;
+		} else if (type.equals(MongoDatabase.class)) {
+			return ReactiveChangeSetContext::getMongoDatabase;
+		} else if (type.equals(Environment.class)) {
+			return ReactiveChangeSetContext::getEnvironment;
+		} else if (type.equals(ApplicationContext.class)) {
+			return ReactiveChangeSetContext::getApplicationContext;
+		} else if (applicationContext != null && ChangeSetInvoker.hasBean(method, type, applicationContext)) {
+			return context -> context.getApplicationContext().getBean(type);
+		}
+		throw new MongoBumblebeeChangeSetException("ChangeSet method " + method.getName() + " has wrong arguments list. Argument of type "
+				+ type.getName() + " can't be resolved. Please see docs for more info!");
+	}
+
+	/**
+	 * Calls the changeset method on a thread which may block, and subscribes to a returned publisher
+	 *
+	 * @param changeLogInstance instance of the changelog class
+	 * @param context objects of the current execution
+	 * @return result of the changeset, empty if there is none
+	 */
+	Mono<Optional<Object>> invoke(Object changeLogInstance, ReactiveChangeSetContext context) {
+		return Mono.fromCallable(() -> {
+			Object[] args = new Object[resolvers.size()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = resolvers.get(i).apply(context);
+			}
+			try {
+				return Optional.ofNullable(method.invoke(changeLogInstance, args));
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException() instanceof Exception cause ? cause : e;
+			}
+		}).subscribeOn(Schedulers.boundedElastic()).flatMap(result -> {
+			if (result.isPresent() && result.get() instanceof Publisher<?> publisher) {
+				return Flux.<Object> from(publisher).reduce((previous, last) -> last)
+						.map(Optional::of)
+						.defaultIfEmpty(Optional.empty());
+			}
+			return Mono.just(result);
+		});
+	}
+
+}
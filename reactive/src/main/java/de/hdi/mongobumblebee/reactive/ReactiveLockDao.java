@@ -0,0 +1,147 @@
+package de.hdi.mongobumblebee.reactive;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Field;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the lease based process lock. The lock document is the same as the one of the blocking runner, so both
+ * runners exclude each other.
+ */
+@Slf4j
+class ReactiveLockDao {
+
+	private static final String KEY_PROP_NAME = "key";
+	private static final String KEY_STATUS = "status";
+	private static final String KEY_LAST_ACCESS = "lastAccess";
+	private static final String KEY_EXPIRES_AT = "expiresAt";
+	private static final String KEY_OWNER = "owner";
+	private static final String KEY_TOKEN = "token";
+	private static final String LOCK_HELD = "LOCK_HELD";
+	private static final String LOCK_RELEASED = "RELEASED";
+
+	private final MongoDatabase mongoDatabase;
+	private final MongoCollection<Document> lockCollection;
+	private final String lockCollectionName;
+	private final String lockKey;
+	private final String owner;
+	private final Duration leaseTime;
+	/** Fencing token of the held lock, null if no lock is held */
+	private volatile Long token;
+
+	ReactiveLockDao(MongoDatabase mongoDatabase, String lockCollectionName, String lockKey, String owner, Duration leaseTime) {
+		this.mongoDatabase = mongoDatabase;
+		this.lockCollection = mongoDatabase.getCollection(lockCollectionName);
+		this.lockCollectionName = lockCollectionName;
+		this.lockKey = lockKey;
+		this.owner = owner;
+		this.leaseTime = leaseTime;
+	}
+
+	Mono<Void> initializeLock() {
+		// lock documents are never removed, so the fencing token keeps increasing
+		return Mono.from(lockCollection.createIndex(Indexes.ascending(KEY_PROP_NAME),
+						new IndexOptions().name(MongoBumblebee.MB_PREFIX + "lock_key_idx").unique(true)))
+				.then();
+	}
+
+	/**
+	 * @return true if the lock has been acquired, false if it is held by another process
+	 */
+	Mono<Boolean> acquireLock() {
+		return Mono.from(mongoDatabase.runCommand(new Document("hello", 1))).flatMap(hello -> {
+			Date now = hello.getDate("localTime");
+			Bson expired = Filters.or(
+					Filters.eq(KEY_STATUS, LOCK_RELEASED),
+					Filters.lt(KEY_EXPIRES_AT, now),
+					Filters.and(Filters.exists(KEY_EXPIRES_AT, false), Filters.lt(KEY_LAST_ACCESS, Date.from(now.toInstant().minus(leaseTime)))));
+			List<Bson> update = List.of(Aggregates.set(
+					new Field<>(KEY_STATUS, LOCK_HELD),
+					new Field<>(KEY_OWNER, owner),
+					new Field<>(KEY_TOKEN, new Document("$add", List.of(new Document("$ifNull", List.of("$" + KEY_TOKEN, 0L)), 1L))),
+					new Field<>(KEY_LAST_ACCESS, "$$NOW"),
+					new Field<>(KEY_EXPIRES_AT, leaseEnd())));
+			return Mono.from(lockCollection.findOneAndUpdate(Filters.and(Filters.eq(KEY_PROP_NAME, lockKey), expired), update,
+					new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)));
+		}).map(lock -> {
+			token = lock.get(KEY_TOKEN, Number.class).longValue();
+			return true;
+		}).onErrorResume(ReactiveLockDao::isDuplicateKey, e -> {
+			log.warn("Duplicate key exception while acquireLock. Probably the lock has been already acquired by another process.");
+			return Mono.just(false);
+		});
+	}
+
+	Mono<Void> updateLock() {
+		return Mono.from(lockCollection.updateOne(heldByThis(), List.of(Aggregates.set(new Field<>(KEY_LAST_ACCESS, "$$NOW"), new Field<>(KEY_EXPIRES_AT, leaseEnd())))))
+				.doOnNext(result -> {
+					if (result.getModifiedCount() != 1) {
+						log.warn("Lock couldn't be updated, it isn't held by {} with fencing token {} anymore", owner, token);
+					}
+				})
+				.then();
+	}
+
+	Mono<Void> releaseLock() {
+		return Mono.from(lockCollection.updateOne(heldByThis(), List.of(Aggregates.set(new Field<>(KEY_STATUS, LOCK_RELEASED), new Field<>(KEY_EXPIRES_AT, "$$NOW")))))
+				.doOnSuccess(result -> token = null)
+				.then();
+	}
+
+	/**
+	 * @return fencing token of the held lock, null if no lock is held
+	 */
+	Long getToken() {
+		return token;
+	}
+
+	/**
+	 * @return identity of the lock of the form collection/key, the same as the one of the blocking runner
+	 */
+	String getLockId() {
+		return lockCollectionName + "/" + lockKey;
+	}
+
+	Mono<Boolean> isLockHeld() {
+		return Mono.from(lockCollection.countDocuments(Filters.and(Filters.eq(KEY_PROP_NAME, lockKey), Filters.eq(KEY_STATUS, LOCK_HELD),
+				Filters.or(Filters.exists(KEY_EXPIRES_AT, false), Filters.expr(new Document("$gt", List.of("$" + KEY_EXPIRES_AT, "$$NOW")))))))
+				.map(count -> count == 1);
+	}
+
+	private Bson heldByThis() {
+		Bson filter = Filters.and(Filters.eq(KEY_PROP_NAME, lockKey), Filters.eq(KEY_STATUS, LOCK_HELD), Filters.eq(KEY_OWNER, owner));
+		return token == null ? filter : Filters.and(filter, Filters.eq(KEY_TOKEN, token));
+	}
+
+	private Document leaseEnd() {
+		return new Document("$add", List.of("$$NOW", leaseTime.toMillis()));
+	}
+
+	private static boolean isDuplicateKey(Throwable e) {
+		if (e instanceof MongoWriteException writeException) {
+			return writeException.getError().getCategory() == ErrorCategory.DUPLICATE_KEY;
+		}
+		return e instanceof MongoCommandException commandException && ErrorCategory.fromErrorCode(commandException.getErrorCode()) == ErrorCategory.DUPLICATE_KEY;
+	}
+
+}
@@ -0,0 +1,364 @@
+package de.hdi.mongobumblebee.reactive;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.util.StringUtils;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MigrationReport;
+import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
+import de.hdi.mongobumblebee.reactive.ReactiveChangeSetInvoker.ReactiveChangeSetContext;
+import de.hdi.mongobumblebee.utils.ChangeService;
+import de.hdi.mongobumblebee.utils.LockOwner;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * MongoBumblebee runner based on the MongoDB Reactive Streams driver. The migration is one reactive pipeline: the changelogs
+ * are validated, the process lock is acquired, the changesets are executed one after another and the lock is released,
+ * without blocking a thread on the database. Changeset methods may take a {@link ReactiveMongoTemplate} or a reactive
+ * {@link MongoDatabase} and may return a {@link org.reactivestreams.Publisher}.
+ * <p>
+ * The changelog and lock collections are shared with the blocking {@link MongoBumblebee} runner.
+ * <pre>
+ * new ReactiveMongoBumblebee(mongoClient, "DB_NAME")
+ *   .setChangeLogsScanPackage("com.example.yourapp.changelogs")
+ *   .execute()
+ *   .subscribe(report -&gt; ...);
+ * </pre>
+ */
+@Slf4j
+public class ReactiveMongoBumblebee {
+
+	/** Interval (in seconds) in which a held lock is refreshed */
+	public static final long DEFAULT_CHANGE_LOG_LOCK_HEARTBEAT_INTERVAL = MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_HEARTBEAT_INTERVAL;
+
+	private static final String DEFAULT_CHANGELOG_COLLECTION_NAME = MongoBumblebee.MB_PREFIX + "changelog";
+	private static final String DEFAULT_LOCK_COLLECTION_NAME = MongoBumblebee.MB_PREFIX + "lock";
+	/** Minimum duration of the lease of the process lock */
+	private static final Duration MIN_LEASE_TIME = Duration.ofMinutes(5);
+
+	private final MongoClient mongoClient;
+	private final String dbName;
+	/** Owner of the process lock, unique per runner */
+	private final String lockOwner = LockOwner.newOwner();
+	private boolean enabled = true;
+	private String changeLogsScanPackage;
+	private boolean useChangeLogIndex = true;
+	private String changelogCollectionName = DEFAULT_CHANGELOG_COLLECTION_NAME;
+	private String lockCollectionName = DEFAULT_LOCK_COLLECTION_NAME;
+	private String lockKey = LockOwner.DEFAULT_LOCK_KEY;
+	private long changeLogLockHeartbeatInterval = DEFAULT_CHANGE_LOG_LOCK_HEARTBEAT_INTERVAL;
+	private ReactiveMongoTemplate mongoTemplate;
+	private Environment springEnvironment;
+	private ApplicationContext applicationContext;
+
+	/**
+	 * @param mongoClient
+	 *            reactive database connection client
+	 * @param dbName
+	 *            Database name
+	 */
+	public ReactiveMongoBumblebee(MongoClient mongoClient, String dbName) {
+		this.mongoClient = mongoClient;
+		this.dbName = dbName;
+	}
+
+	/**
+	 * Executing migration. Nothing happens until the returned Mono is subscribed.
+	 *
+	 * @return report of the migration, errors with the exception the blocking runner would throw
+	 */
+	public Mono<MigrationReport> execute() {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			if (!enabled) {
+				log.info("MongoBumblebee is disabled. Exiting.");
+				return Mono.just(report(MigrationReport.Status.DISABLED, start));
+			}
+			if (!StringUtils.hasText(dbName)) {
+				return Mono.error(new MongoBumblebeeConfigurationException("DB name is not set. Should be defined in MongoDB URI or via setter"));
+			}
+			if (!StringUtils.hasText(changeLogsScanPackage)) {
+				return Mono.error(new MongoBumblebeeConfigurationException("Scan package for changelogs is not set: use appropriate setter"));
+			}
+
+			MongoDatabase mongoDatabase = mongoClient.getDatabase(dbName);
+			ReactiveChangeEntryDao changeEntryDao = new ReactiveChangeEntryDao(mongoDatabase, changelogCollectionName);
+			ReactiveLockDao lockDao = newLockDao(mongoDatabase);
+			ReactiveChangeSetContext context = ReactiveChangeSetContext.builder()
+					.mongoTemplate(mongoTemplate != null ? mongoTemplate : new ReactiveMongoTemplate(mongoClient, dbName))
+					.mongoDatabase(mongoDatabase)
+					.environment(springEnvironment)
+					.applicationContext(applicationContext)
+					.build();
+			ChangeService service = new ChangeService(changeLogsScanPackage, activeProfiles(), useChangeLogIndex);
+
+			// scanning the classpath blocks, the changelogs are validated before the lock is taken
+			return Mono.fromCallable(() -> createPlan(service))
+					.subscribeOn(Schedulers.boundedElastic())
+					.flatMap(plan -> changeEntryDao.ensureChangeLogCollectionIndex()
+							.then(lockDao.initializeLock())
+							.then(lockDao.acquireLock())
+							.flatMap(acquired -> {
+								if (!acquired) {
+									log.info("MongoBumblebee did not acquire process lock. Exiting.");
+									return Mono.just(report(MigrationReport.Status.LOCK_NOT_ACQUIRED, start));
+								}
+								log.info("MongoBumblebee acquired process lock, starting the data migration sequence..");
+								return migrateWithLock(plan, service, changeEntryDao, lockDao, context, start);
+							}));
+		});
+	}
+
+	/**
+	 * @return true if an execution is in progress, in any process.
+	 */
+	public Mono<Boolean> isExecutionInProgress() {
+		return Mono.defer(() -> newLockDao(mongoClient.getDatabase(dbName)).isLockHeld());
+	}
+
+	private ReactiveLockDao newLockDao(MongoDatabase mongoDatabase) {
+		Duration leaseTime = MIN_LEASE_TIME.compareTo(Duration.ofSeconds(2 * changeLogLockHeartbeatInterval)) > 0
+				? MIN_LEASE_TIME : Duration.ofSeconds(2 * changeLogLockHeartbeatInterval);
+		return new ReactiveLockDao(mongoDatabase, lockCollectionName, lockKey, lockOwner, leaseTime);
+	}
+
+	private Mono<MigrationReport> migrateWithLock(List<ReactiveChangeSetInvoker> plan, ChangeService service, ReactiveChangeEntryDao changeEntryDao, ReactiveLockDao lockDao,
+			ReactiveChangeSetContext context, long start) {
+		Queue<String> applied = new ConcurrentLinkedQueue<>();
+		Queue<String> reapplied = new ConcurrentLinkedQueue<>();
+		AtomicInteger passedOver = new AtomicInteger();
+		Disposable heartbeat = changeLogLockHeartbeatInterval > 0
+				? Flux.interval(Duration.ofSeconds(changeLogLockHeartbeatInterval))
+						.concatMap(tick -> lockDao.updateLock().onErrorResume(e -> {
+							log.warn("Process lock couldn't be refreshed: {}", e.getMessage());
+							return Mono.empty();
+						}))
+						.subscribe()
+				: null;
+
+		return Flux.fromIterable(plan)
+				.concatMap(invoker -> executeChangeSet(invoker, service, changeEntryDao, lockDao, context, applied, reapplied, passedOver))
+				.then(Mono.fromSupplier(() -> new MigrationReport(MigrationReport.Status.MIGRATED, List.copyOf(applied), List.copyOf(reapplied),
+						passedOver.get(), Duration.ofNanos(System.nanoTime() - start))))
+				.doOnSuccess(report -> log.info("MongoBumblebee has finished his job."))
+				.onErrorResume(e -> releaseLock(lockDao, heartbeat).then(Mono.error(e)))
+				.flatMap(report -> releaseLock(lockDao, heartbeat).thenReturn(report))
+				.doOnCancel(() -> releaseLock(lockDao, heartbeat).subscribe());
+	}
+
+	private Mono<Void> releaseLock(ReactiveLockDao lockDao, Disposable heartbeat) {
+		return Mono.defer(() -> {
+			log.info("MongoBumblebee is releasing process lock.");
+			if (heartbeat != null) {
+				heartbeat.dispose();
+			}
+			return lockDao.releaseLock();
+		});
+	}
+
+	private Mono<Void> executeChangeSet(ReactiveChangeSetInvoker invoker, ChangeService service, ReactiveChangeEntryDao changeEntryDao, ReactiveLockDao lockDao, ReactiveChangeSetContext context,
+			Queue<String> applied, Queue<String> reapplied, AtomicInteger passedOver) {
+		Method changesetMethod = invoker.getMethod();
+		ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
+		boolean runAlways = service.isRunAlwaysChangeSet(changesetMethod);
+
+		return changeEntryDao.isNewChange(changeEntry).flatMap(isNew -> {
+			if (!isNew && !runAlways) {
+				passedOver.incrementAndGet();
+				log.info(changeEntry + " passed over");
+				return Mono.empty();
+			}
+			return Mono.fromCallable(() -> newChangeLogInstance(changesetMethod.getDeclaringClass()))
+					.doOnNext(instance -> changeEntry.started(LockOwner.HOST, lockOwner, lockDao.getLockId(), lockDao.getToken()))
+					.flatMap(instance -> invoker.invoke(instance, context))
+					.onErrorResume(e -> {
+						if (changeEntry.getStartedAt() == null) {
+							return Mono.error(e);
+						}
+						// failed changesets are executed again by the next run, runAlways changesets included
+						changeEntry.finished(ChangeEntry.OUTCOME_FAILED);
+						return changeEntryDao.save(changeEntry)
+								.onErrorResume(saveError -> {
+									log.error("Failure of {} couldn't be recorded: {}", changeEntry, saveError.getMessage());
+									e.addSuppressed(saveError);
+									return Mono.empty();
+								})
+								.then(Mono.error(e));
+					})
+					.flatMap(result -> {
+						changeEntry.finished(ChangeEntry.OUTCOME_SUCCESS);
+						changeEntry.setResult(result.orElse(null));
+						// fenced by the lock token, fails with a MongoBumblebeeLockException if the lock has been taken over
+						return changeEntryDao.save(changeEntry).then(Mono.fromRunnable(() -> {
+							if (isNew) {
+								applied.add(changeEntry.getChangeId());
+								log.info(changeEntry + " applied. Return= " + result.orElse(null));
+							} else {
+								reapplied.add(changeEntry.getChangeId());
+								log.info(changeEntry + " reapplied. Return= " + result.orElse(null));
+							}
+						}));
+					});
+		});
+	}
+
+	/**
+	 * Fetches the active changesets, validates them like the blocking runner does and binds them in execution order.
+	 * Parallel groups are executed one after another.
+	 *
+	 * @throws MongoBumblebeeChangeSetException listing all problems found
+	 */
+	private List<ReactiveChangeSetInvoker> createPlan(ChangeService service) throws MongoBumblebeeChangeSetException {
+		return service.bindChangeLogs(changeSet -> {
+					if (service.isTransactionalChangeSet(changeSet)) {
+						throw new MongoBumblebeeChangeSetException("ChangeSet method " + changeSet.getName() + " is transactional, transactions are supported by the blocking runner only");
+					}
+					return ReactiveChangeSetInvoker.bind(changeSet, applicationContext);
+				}).stream()
+				.flatMap(List::stream)
+				.flatMap(changeLog -> changeLog.getChangeSets().stream())
+				.toList();
+	}
+
+	private List<String> activeProfiles() {
+		if (springEnvironment != null && springEnvironment.getActiveProfiles().length > 0) {
+			return List.of(springEnvironment.getActiveProfiles());
+		}
+		return List.of(ChangeService.DEFAULT_PROFILE);
+	}
+
+	private Object newChangeLogInstance(Class<?> changeLogClass) throws ReflectiveOperationException {
+		if (applicationContext != null) {
+			for (Constructor<?> constructor : changeLogClass.getConstructors()) {
+				if (constructor.getParameterCount() == 1 && constructor.getParameterTypes()[0].equals(ApplicationContext.class)) {
+					return constructor.newInstance(applicationContext);
+				}
+			}
+		}
+		return changeLogClass.getConstructor().newInstance();
+	}
+
+	private static MigrationReport report(MigrationReport.Status status, long start) {
+		return new MigrationReport(status, List.of(), List.of(), 0, Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	/**
+	 * @param changeLogsScanPackage
+	 *            package where your changelogs are
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setChangeLogsScanPackage(String changeLogsScanPackage) {
+		this.changeLogsScanPackage = changeLogsScanPackage;
+		return this;
+	}
+
+	/**
+	 * @param enabled
+	 *            MongoBumblebee will run only if this option is set to true
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		return this;
+	}
+
+	/**
+	 * @param useChangeLogIndex
+	 *            MongoBumblebee will use the changelog index if this option is set to true (default)
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setUseChangeLogIndex(boolean useChangeLogIndex) {
+		this.useChangeLogIndex = useChangeLogIndex;
+		return this;
+	}
+
+	/**
+	 * @param changelogCollectionName
+	 *            a new changelog collection name
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setChangelogCollectionName(String changelogCollectionName) {
+		this.changelogCollectionName = changelogCollectionName;
+		return this;
+	}
+
+	/**
+	 * @param lockCollectionName
+	 *            a new lock collection name
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setLockCollectionName(String lockCollectionName) {
+		this.lockCollectionName = lockCollectionName;
+		return this;
+	}
+
+	/**
+	 * @param lockKey
+	 *            key of the process lock, migrations with different keys don't exclude each other
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setLockKey(String lockKey) {
+		this.lockKey = lockKey;
+		return this;
+	}
+
+	/**
+	 * @param changeLogLockHeartbeatInterval
+	 *            Interval in seconds, 0 disables the heartbeat
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setChangeLogLockHeartbeatInterval(long changeLogLockHeartbeatInterval) {
+		this.changeLogLockHeartbeatInterval = changeLogLockHeartbeatInterval;
+		return this;
+	}
+
+	/**
+	 * @param mongoTemplate
+	 *            template passed to changesets, default is a template created for the client and database
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setMongoTemplate(ReactiveMongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+		return this;
+	}
+
+	/**
+	 * @param environment
+	 *            Spring environment providing the active profiles
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setSpringEnvironment(Environment environment) {
+		this.springEnvironment = environment;
+		return this;
+	}
+
+	/**
+	 * @param applicationContext
+	 *            application context to resolve further changeset parameters from
+	 * @return ReactiveMongoBumblebee object for fluent interface
+	 */
+	public ReactiveMongoBumblebee setApplicationContext(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+		return this;
+	}
+
+}
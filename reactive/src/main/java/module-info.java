@@ -0,0 +1,16 @@
+module de.hdi.mongobumblebee.reactive {
+
+	exports de.hdi.mongobumblebee.reactive;
+
+	requires static lombok;
+	requires transitive de.hdi.mongobumblebee;
+	requires transitive org.mongodb.driver.reactivestreams;
+	requires transitive org.reactivestreams;
+	requires transitive reactor.core;
+	requires org.mongodb.driver.core;
+	requires org.slf4j;
+	requires spring.context;
+	requires spring.core;
+	requires transitive spring.data.mongodb;
+
+}
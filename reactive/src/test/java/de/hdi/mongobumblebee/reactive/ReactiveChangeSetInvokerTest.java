@@ -0,0 +1,116 @@
+package de.hdi.mongobumblebee.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.reactive.ReactiveChangeSetInvoker.ReactiveChangeSetContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReactiveChangeSetInvokerTest {
+
+	public static class ChangeLogMethods {
+
+		public List<Object> templateAndDatabase(ReactiveMongoTemplate template, MongoDatabase database) {
+			return List.of(template, database);
+		}
+
+		public Flux<Integer> publisher() {
+			return Flux.just(1, 2, 3);
+		}
+
+		public Mono<Void> emptyPublisher() {
+			return Mono.empty();
+		}
+
+		public Mono<Void> failingPublisher() {
+			return Mono.error(new IllegalStateException("failed"));
+		}
+
+		public void unsupported(String value) {
+		}
+	}
+
+	private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+
+	private final MongoDatabase database = mock(MongoDatabase.class);
+
+	private final ReactiveChangeSetContext context = ReactiveChangeSetContext.builder()
+			.mongoTemplate(template)
+			.mongoDatabase(database)
+			.build();
+
+	@Test
+	void shouldResolveTemplateAndDatabase() throws Exception {
+
+		// given
+		ReactiveChangeSetInvoker invoker = ReactiveChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("templateAndDatabase", ReactiveMongoTemplate.class, MongoDatabase.class), null);
+
+		// when
+		Optional<Object> result = invoker.invoke(new ChangeLogMethods(), context).block();
+
+		// then
+		assertEquals(Optional.of(List.of(template, database)), result);
+	}
+
+	@Test
+	void shouldUseLastElementOfPublisherAsResult() throws Exception {
+
+		// given
+		ReactiveChangeSetInvoker invoker = ReactiveChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("publisher"), null);
+
+		// when
+		Optional<Object> result = invoker.invoke(new ChangeLogMethods(), context).block();
+
+		// then
+		assertEquals(Optional.of(3), result);
+	}
+
+	@Test
+	void shouldCompleteEmptyPublisherWithoutResult() throws Exception {
+
+		// given
+		ReactiveChangeSetInvoker invoker = ReactiveChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("emptyPublisher"), null);
+
+		// when
+		Optional<Object> result = invoker.invoke(new ChangeLogMethods(), context).block();
+
+		// then
+		assertEquals(Optional.empty(), result);
+	}
+
+	@Test
+	void shouldFailWithErrorOfPublisher() throws Exception {
+
+		// given
+		ReactiveChangeSetInvoker invoker = ReactiveChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("failingPublisher"), null);
+
+		// when
+		Mono<Optional<Object>> result = invoker.invoke(new ChangeLogMethods(), context);
+
+		// then
+		assertThrows(IllegalStateException.class, result::block);
+	}
+
+	@Test
+	void shouldRejectUnsupportedParameter() throws Exception {
+
+		// given
+		Method method = ChangeLogMethods.class.getMethod("unsupported", String.class);
+
+		// when
+		assertThrows(MongoBumblebeeChangeSetException.class, () -> ReactiveChangeSetInvoker.bind(method, null));
+	}
+
+}
@@ -0,0 +1,223 @@
+package de.hdi.mongobumblebee.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MigrationReport;
+import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeLockException;
+import de.hdi.mongobumblebee.reactive.test.changelogs.ReactiveTestChangeLog;
+import de.hdi.mongobumblebee.reactive.test.failing.ReactiveFailingRunAlwaysChangeLog;
+import de.hdi.mongobumblebee.reactive.test.invalid.ReactiveInvalidChangeLog;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * Runs the reactive runner against mocked collections of the Reactive Streams driver
+ */
+class ReactiveMongoBumblebeeTest {
+
+	private static final String DB_NAME = "ReactiveMongoBumblebeeTest";
+
+	private final MongoClient mongoClient = mock(MongoClient.class);
+
+	private final MongoDatabase mongoDatabase = mock(MongoDatabase.class);
+
+	@SuppressWarnings("unchecked")
+	private final MongoCollection<Document> changeLog = mock(MongoCollection.class);
+
+	@SuppressWarnings("unchecked")
+	private final MongoCollection<Document> lock = mock(MongoCollection.class);
+
+	private ReactiveMongoBumblebee runner;
+
+	@BeforeEach
+	void init() {
+		ReactiveTestChangeLog.EXECUTIONS.set(0);
+		ReactiveTestChangeLog.PUBLISHED.set(0);
+
+		when(mongoClient.getDatabase(DB_NAME)).thenReturn(mongoDatabase);
+		when(mongoDatabase.getCollection("mbbchangelog")).thenReturn(changeLog);
+		when(mongoDatabase.getCollection("mbblock")).thenReturn(lock);
+		when(mongoDatabase.runCommand(any(Bson.class))).thenReturn(Mono.just(new Document("localTime", new Date())));
+		when(changeLog.createIndex(any(Bson.class), any(IndexOptions.class))).thenReturn(Mono.just("index"));
+		when(changeLog.replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class))).thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+		when(lock.createIndex(any(Bson.class), any(IndexOptions.class))).thenReturn(Mono.just("index"));
+		when(lock.updateOne(any(Bson.class), anyList())).thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+		runner = new ReactiveMongoBumblebee(mongoClient, DB_NAME)
+				.setChangeLogsScanPackage(ReactiveTestChangeLog.class.getPackage().getName())
+				.setUseChangeLogIndex(false)
+				.setChangeLogLockHeartbeatInterval(0)
+				.setMongoTemplate(mock(ReactiveMongoTemplate.class));
+	}
+
+	@Test
+	void shouldAcquireAndReleaseLock() {
+
+		// given
+		when(lock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(Mono.just(new Document("token", 1L)));
+		when(changeLog.countDocuments(any(Bson.class))).thenReturn(Mono.just(0L));
+
+		// when
+		MigrationReport report = runner.execute().block();
+
+		// then
+		assertEquals(MigrationReport.Status.MIGRATED, report.getStatus());
+		verify(lock).findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class));
+		// released after the last changeset, no heartbeat
+		verify(lock, times(1)).updateOne(any(Bson.class), anyList());
+	}
+
+	@Test
+	void shouldNotMigrateWithoutLock() {
+
+		// given
+		MongoCommandException duplicateKey = new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+				.append("code", new BsonInt32(11000))
+				.append("errmsg", new BsonString("E11000 duplicate key error")), new ServerAddress());
+		when(lock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(Mono.error(duplicateKey));
+
+		// when
+		MigrationReport report = runner.execute().block();
+
+		// then
+		assertEquals(MigrationReport.Status.LOCK_NOT_ACQUIRED, report.getStatus());
+		assertEquals(0, ReactiveTestChangeLog.EXECUTIONS.get());
+		verify(lock, never()).updateOne(any(Bson.class), anyList());
+	}
+
+	@Test
+	void shouldPassOverAppliedChangeSets() {
+
+		// given
+		when(lock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(Mono.just(new Document("token", 1L)));
+		when(changeLog.countDocuments(any(Bson.class))).thenReturn(Mono.just(1L));
+
+		// when
+		MigrationReport report = runner.execute().block();
+
+		// then
+		assertEquals(2, report.getPassedOverChangeSets());
+		assertEquals(List.of(), report.getAppliedChangeSets());
+		assertEquals(0, ReactiveTestChangeLog.EXECUTIONS.get());
+		verify(changeLog, never()).replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class));
+	}
+
+	@Test
+	void shouldSaveChangeSetAfterItsPublisherCompleted() {
+
+		// given
+		when(lock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(Mono.just(new Document("token", 1L)));
+		when(changeLog.countDocuments(any(Bson.class))).thenReturn(Mono.just(0L));
+		ArgumentCaptor<Document> entries = ArgumentCaptor.forClass(Document.class);
+
+		// when
+		MigrationReport report = runner.execute().block();
+
+		// then
+		assertEquals(List.of("reactive1", "reactive2"), report.getAppliedChangeSets());
+		assertEquals(2, ReactiveTestChangeLog.PUBLISHED.get());
+		verify(changeLog, times(2)).replaceOne(any(Bson.class), entries.capture(), any(ReplaceOptions.class));
+		Document entry = entries.getAllValues().get(1);
+		assertEquals("reactive2", entry.get(ChangeEntry.KEY_CHANGEID));
+		assertEquals("last", entry.get(ChangeEntry.KEY_RETURNVALUE));
+		assertEquals(ChangeEntry.OUTCOME_SUCCESS, entry.get(ChangeEntry.KEY_OUTCOME));
+		assertEquals(1L, entry.get(ChangeEntry.KEY_LOCK_TOKEN));
+	}
+
+	@Test
+	void shouldRecordFailureOfRunAlwaysChangeSet() {
+
+		// given
+		runner.setChangeLogsScanPackage(ReactiveFailingRunAlwaysChangeLog.class.getPackage().getName());
+		when(lock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(Mono.just(new Document("token", 1L)));
+		when(changeLog.countDocuments(any(Bson.class))).thenReturn(Mono.just(1L));
+		ArgumentCaptor<Document> entries = ArgumentCaptor.forClass(Document.class);
+
+		// when
+		StepVerifier.create(runner.execute())
+
+				// then
+				.expectError(IllegalStateException.class)
+				.verify();
+		verify(changeLog).replaceOne(any(Bson.class), entries.capture(), any(ReplaceOptions.class));
+		assertEquals("failingRunAlways1", entries.getValue().get(ChangeEntry.KEY_CHANGEID));
+		assertEquals(ChangeEntry.OUTCOME_FAILED, entries.getValue().get(ChangeEntry.KEY_OUTCOME));
+	}
+
+	@Test
+	void shouldFailIfChangeLogHasBeenWrittenWithGreaterFencingToken() {
+
+		// given
+		when(lock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class))).thenReturn(Mono.just(new Document("token", 1L)));
+		when(changeLog.countDocuments(any(Bson.class))).thenReturn(Mono.just(0L));
+		MongoWriteException duplicateKey = new MongoWriteException(new WriteError(11000, "E11000 duplicate key error", new BsonDocument()), new ServerAddress());
+		when(changeLog.replaceOne(any(Bson.class), any(Document.class), any(ReplaceOptions.class))).thenReturn(Mono.error(duplicateKey));
+
+		// when
+		StepVerifier.create(runner.execute())
+
+				// then
+				.expectError(MongoBumblebeeLockException.class)
+				.verify();
+		assertEquals(1, ReactiveTestChangeLog.EXECUTIONS.get());
+		// lock released
+		verify(lock, times(1)).updateOne(any(Bson.class), anyList());
+	}
+
+	@Test
+	void shouldRejectInvalidChangeLogsBeforeLocking() {
+
+		// given
+		runner.setChangeLogsScanPackage(ReactiveInvalidChangeLog.class.getPackage().getName());
+
+		// when
+		StepVerifier.create(runner.execute())
+
+				// then
+				.expectErrorSatisfies(e -> {
+					assertTrue(e instanceof MongoBumblebeeChangeSetException, e.toString());
+					assertTrue(e.getMessage().contains("Duplicated changeset id 'invalid1'"), e.getMessage());
+					assertTrue(e.getMessage().contains("same order"), e.getMessage());
+					assertTrue(e.getMessage().contains("supported by the blocking runner only"), e.getMessage());
+				})
+				.verify();
+		verifyNoInteractions(lock);
+	}
+
+}
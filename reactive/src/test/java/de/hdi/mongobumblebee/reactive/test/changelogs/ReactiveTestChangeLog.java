@@ -0,0 +1,29 @@
+package de.hdi.mongobumblebee.reactive.test.changelogs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+import reactor.core.publisher.Flux;
+
+@ChangeLog(order = "1")
+public class ReactiveTestChangeLog {
+
+	public static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+	public static final AtomicInteger PUBLISHED = new AtomicInteger();
+
+	@ChangeSet(author = "testuser", id = "reactive1", order = "01")
+	public void testChangeSet(ReactiveMongoTemplate mongoTemplate) {
+		EXECUTIONS.incrementAndGet();
+	}
+
+	@ChangeSet(author = "testuser", id = "reactive2", order = "02")
+	public Flux<String> testChangeSet2() {
+		EXECUTIONS.incrementAndGet();
+		return Flux.just("first", "last").doOnNext(element -> PUBLISHED.incrementAndGet());
+	}
+
+}
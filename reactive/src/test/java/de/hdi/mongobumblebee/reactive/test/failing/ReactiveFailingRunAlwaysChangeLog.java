@@ -0,0 +1,15 @@
+package de.hdi.mongobumblebee.reactive.test.failing;
+
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+import reactor.core.publisher.Mono;
+
+@ChangeLog(order = "1")
+public class ReactiveFailingRunAlwaysChangeLog {
+
+	@ChangeSet(author = "testuser", id = "failingRunAlways1", order = "01", runAlways = true)
+	public Mono<Void> failingRunAlwaysChangeSet() {
+		return Mono.error(new IllegalStateException("failing runAlways changeset"));
+	}
+
+}
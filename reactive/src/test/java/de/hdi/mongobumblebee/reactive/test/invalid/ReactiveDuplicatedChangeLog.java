@@ -0,0 +1,14 @@
+package de.hdi.mongobumblebee.reactive.test.invalid;
+
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "2")
+public class ReactiveDuplicatedChangeLog {
+
+	@ChangeSet(author = "testuser", id = "invalid1", order = "01")
+	public void testChangeSet() {
+		System.out.println("invoked invalid1 again");
+	}
+
+}
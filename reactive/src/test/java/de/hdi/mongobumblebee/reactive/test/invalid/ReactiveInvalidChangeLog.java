@@ -0,0 +1,24 @@
+package de.hdi.mongobumblebee.reactive.test.invalid;
+
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "1")
+public class ReactiveInvalidChangeLog {
+
+	@ChangeSet(author = "testuser", id = "invalid1", order = "01")
+	public void testChangeSet() {
+		System.out.println("invoked invalid1");
+	}
+
+	@ChangeSet(author = "testuser", id = "invalid2", order = "01")
+	public void testChangeSet2() {
+		System.out.println("invoked invalid2");
+	}
+
+	@ChangeSet(author = "testuser", id = "invalid3", order = "02", transactional = true)
+	public void testChangeSet3() {
+		System.out.println("invoked invalid3");
+	}
+
+}
@@ -0,0 +1,14 @@
+package de.hdi.mongobumblebee;
+
+/**
+ * Scope of the process lock, see {@link MongoBumblebee#setLockScope(LockScope)}. Migrations only exclude each other if their
+ * locks have the same scope and the same key.
+ */
+public enum LockScope {
+	/** One lock for all migrations of the database */
+	DATABASE,
+	/** One lock per changelog scan package */
+	SCAN_PACKAGE,
+	/** One lock per changelog collection */
+	CHANGELOG_COLLECTION
+}
@@ -0,0 +1,39 @@
+package de.hdi.mongobumblebee;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Names and keys of the Micrometer observations recorded during a migration. With a meter registry (e.g. Spring Boot actuator)
+ * every observation results in a timer, a running observation in a long task timer.
+ */
+public final class MigrationObservations {
+
+	/** Scan and validation of the changelogs */
+	public static final String FETCH_CHANGELOGS = MongoBumblebee.MB_PREFIX + ".changelogs.fetch";
+	/** Connect to the database including the index setup */
+	public static final String CONNECT = MongoBumblebee.MB_PREFIX + ".connect";
+	/** Acquisition of the process lock including the time waited for it */
+	public static final String ACQUIRE_LOCK = MongoBumblebee.MB_PREFIX + ".lock.acquire";
+	/** Time the process lock is held */
+	public static final String LOCK_HELD = MongoBumblebee.MB_PREFIX + ".lock.held";
+	/** Execution of a single changeset */
+	public static final String CHANGESET = MongoBumblebee.MB_PREFIX + ".changeset";
+	/** Write of a changelog entry */
+	public static final String SAVE = MongoBumblebee.MB_PREFIX + ".changeset.save";
+
+	public static final String KEY_CHANGELOG = "changeLog";
+	public static final String KEY_CHANGESET_ID = "id";
+	public static final String KEY_OUTCOME = "outcome";
+
+	private MigrationObservations() {
+	}
+
+	/**
+	 * Runs the callable as observation of the given name
+	 */
+	static <T, E extends Throwable> T observe(ObservationRegistry registry, String name, Observation.CheckedCallable<T, E> callable) throws E {
+		return Observation.createNotStarted(name, registry).observeChecked(callable);
+	}
+
+}
@@ -0,0 +1,41 @@
+package de.hdi.mongobumblebee;
+
+import java.time.Duration;
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Result of a migration, see {@link MongoBumblebee#executeAsync()}
+ */
+@Value
+public class MigrationReport {
+
+	/**
+	 * How the migration ended
+	 */
+	public enum Status {
+		/** MongoBumblebee is disabled, nothing was checked */
+		DISABLED,
+		/** The fingerprint of the changesets was up to date, no changeset was checked */
+		UP_TO_DATE,
+		/** Another process held the process lock */
+		LOCK_NOT_ACQUIRED,
+		/** All changesets were checked and the pending ones executed */
+		MIGRATED
+	}
+
+	Status status;
+	/** Ids of the changesets executed for the first time, in order of completion */
+	List<String> appliedChangeSets;
+	/** Ids of the runAlways changesets executed again */
+	List<String> reappliedChangeSets;
+	/** Number of changesets not executed because they were applied before */
+	int passedOverChangeSets;
+	Duration duration;
+
+	static MigrationReport of(Status status, Duration duration) {
+		return new MigrationReport(status, List.of(), List.of(), 0, duration);
+	}
+
+}
@@ -1,11 +1,28 @@
 package de.hdi.mongobumblebee;
 
+import static de.hdi.mongobumblebee.MigrationObservations.observe;
 import static java.util.Arrays.asList;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.bson.Document;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
@@ -14,17 +31,32 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.util.StringUtils;
 
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
-import com.mongodb.client.MongoDatabase;
 
+import de.hdi.mongobumblebee.batch.BatchMigrator;
 import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
+import de.hdi.mongobumblebee.changeset.ChangeSetStatus;
+import de.hdi.mongobumblebee.changeset.DeclaredIndexes;
+import de.hdi.mongobumblebee.changeset.PlannedChangeSet;
 import de.hdi.mongobumblebee.dao.ChangeEntryDao;
+import de.hdi.mongobumblebee.dao.DeclaredIndexDao;
+import de.hdi.mongobumblebee.dao.LockDao;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeConnectionException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeException;
 import de.hdi.mongobumblebee.utils.ChangeService;
+import de.hdi.mongobumblebee.utils.ChangeSetInvoker;
+import de.hdi.mongobumblebee.utils.ChangeSetInvoker.ChangeSetContext;
+import de.hdi.mongobumblebee.utils.LockOwner;
+import de.hdi.mongobumblebee.utils.MigrationPlan;
+import de.hdi.mongobumblebee.utils.MigrationPlan.PlannedChangeLog;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -44,6 +76,12 @@ public class MongoBumblebee implements InitializingBean {
 	/** Time between two polls to aquire the lock (in seconds) */
 	public static final long DEFAULT_CHANGE_LOG_LOCK_POLL_RATE = 10L;
 	public static final boolean DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK = false;
+	/** Number of changelogs of the same parallel group executed concurrently */
+	public static final int DEFAULT_CHANGE_LOG_PARALLELISM = 1;
+	/** Interval (in seconds) in which a held lock is refreshed */
+	public static final long DEFAULT_CHANGE_LOG_LOCK_HEARTBEAT_INTERVAL = 60L;
+	/** Number of changelog entries written at once */
+	public static final int DEFAULT_CHANGE_LOG_BATCH_SIZE = 1;
 	
 	private static final String DEFAULT_CHANGELOG_COLLECTION_NAME = MB_PREFIX + "changelog";
 	private static final String DEFAULT_LOCK_COLLECTION_NAME = MB_PREFIX + "lock";
@@ -54,9 +92,29 @@ public class MongoBumblebee implements InitializingBean {
 	private ChangeEntryDao dao;
 	private boolean enabled = true;
 	private String changeLogsScanPackage;
+	private boolean useChangeLogIndex = true;
+	private boolean useFingerprint;
+	private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+	/** Changesets of the running migration not executed or passed over yet */
+	private final AtomicInteger pendingChangeSets = new AtomicInteger();
+	/** Ids of the changesets applied and reapplied by the running migration */
+	private final Queue<String> appliedChangeSets = new ConcurrentLinkedQueue<>();
+	private final Queue<String> reappliedChangeSets = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger passedOverChangeSets = new AtomicInteger();
+	/** Runs {@link #executeAsync()}, a new virtual thread per migration by default */
+	private Executor executor = command -> Thread.ofVirtual().name(MB_PREFIX + "-migration").start(command);
+	private boolean async;
+	/** Set while a migration of this runner is in progress, shared by all entry points as they share the state above */
+	private final AtomicBoolean running = new AtomicBoolean();
+	private volatile CompletableFuture<MigrationReport> migration;
+	private int changeLogParallelism = DEFAULT_CHANGE_LOG_PARALLELISM;
+	private LockScope lockScope = LockScope.DATABASE;
+	/** Key of the process lock, overrides the lock scope if set */
+	private String lockKey;
 	private final MongoClient mongoClient;
 	private final String dbName;
 	private Environment springEnvironment;
+	private MongoTemplate mongoTemplate;
 
 	/**
 	 * <p>
@@ -76,6 +134,8 @@ public class MongoBumblebee implements InitializingBean {
 		this.dbName = dbName;
 		this.mongoClient = mongoClient;
 		this.dao = new ChangeEntryDao(DEFAULT_CHANGELOG_COLLECTION_NAME, DEFAULT_LOCK_COLLECTION_NAME, DEFAULT_WAIT_FOR_LOCK, DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		this.dao.setChangeLogBatchSize(DEFAULT_CHANGE_LOG_BATCH_SIZE);
+		this.dao.setChangeLogLockHeartbeatInterval(DEFAULT_CHANGE_LOG_LOCK_HEARTBEAT_INTERVAL);
 	}
 
 	/**
@@ -111,53 +171,244 @@ public class MongoBumblebee implements InitializingBean {
 	}
 
 	/**
-	 * For Spring users: executing MongoBumblebee after bean is created in the Spring context
+	 * For Spring users: executing MongoBumblebee after bean is created in the Spring context. In {@link #setAsync(boolean) async}
+	 * mode the migration is only started, see {@link #getMigration()}.
 	 *
 	 * @throws Exception
 	 *             exception
 	 */
 	@Override
 	public void afterPropertiesSet() throws Exception {
-		execute();
+		if (observationRegistry.isNoop() && applicationContext != null) {
+			observationRegistry = applicationContext.getBeanProvider(ObservationRegistry.class).getIfAvailable(() -> ObservationRegistry.NOOP);
+		}
+		if (async) {
+			executeAsync().whenComplete((report, e) -> {
+				if (e != null) {
+					log.error("MongoBumblebee migration failed", e);
+				}
+			});
+		} else {
+			execute();
+		}
 	}
 
 	/**
 	 * Executing migration
 	 *
 	 * @throws MongoBumblebeeException
-	 *             exception
+	 *             exception, also if a migration of this runner is already in progress
 	 */
 	public void execute() throws MongoBumblebeeException {
+		migrate();
+	}
+
+	/**
+	 * Executing migration on the {@link #setExecutor(Executor) executor}. The returned future completes exceptionally with the
+	 * exception {@link #execute()} would throw. Only one migration of a runner can be in progress, the future of a further call
+	 * completes exceptionally with a {@link MongoBumblebeeException} until it has completed.
+	 *
+	 * @return report of the migration
+	 */
+	public CompletableFuture<MigrationReport> executeAsync() {
+		if (!running.compareAndSet(false, true)) {
+			return CompletableFuture.failedFuture(alreadyInProgress());
+		}
+		CompletableFuture<MigrationReport> future = new CompletableFuture<>();
+		migration = future;
+		try {
+			executor.execute(() -> {
+				MigrationReport report;
+				try {
+					report = migrateUnguarded(null);
+				} catch (Throwable e) {
+					running.set(false);
+					future.completeExceptionally(e);
+					return;
+				}
+				running.set(false);
+				future.complete(report);
+			});
+		} catch (RuntimeException e) {
+			// rejected by the executor
+			running.set(false);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private MigrationReport migrate() throws MongoBumblebeeException {
+		return migrate(null);
+	}
+
+	private static MongoBumblebeeException alreadyInProgress() {
+		return new MongoBumblebeeException("Migration of this runner is already in progress");
+	}
+
+	/**
+	 * Validates the configuration and computes the migration plan, which can be passed to {@link #migrate(MigrationPlan)} of runners
+	 * with the same changelog configuration
+	 *
+	 * @return validated migration plan
+	 * @throws MongoBumblebeeException if the configuration or the changelogs are invalid
+	 */
+	MigrationPlan createMigrationPlan() throws MongoBumblebeeException {
+		validateConfig();
+		return createChangeService().createMigrationPlan(applicationContext);
+	}
+
+	/**
+	 * @param migrationPlan plan computed before by a runner with the same changelog configuration, null to compute it
+	 */
+	MigrationReport migrate(MigrationPlan migrationPlan) throws MongoBumblebeeException {
+		if (!running.compareAndSet(false, true)) {
+			throw alreadyInProgress();
+		}
+		try {
+			return migrateUnguarded(migrationPlan);
+		} finally {
+			running.set(false);
+		}
+	}
+
+	private MigrationReport migrateUnguarded(MigrationPlan migrationPlan) throws MongoBumblebeeException {
+		long start = System.nanoTime();
 		if (!isEnabled()) {
 			log.info("MongoBumblebee is disabled. Exiting.");
-			return;
+			return MigrationReport.of(MigrationReport.Status.DISABLED, Duration.ofNanos(System.nanoTime() - start));
 		}
 
 		validateConfig();
 
-		if (this.mongoClient != null) {
-			dao.connectMongoDb(this.mongoClient, dbName);
-		} 
+		// everything which can be checked without the database is checked before the lock is taken
+		ChangeService service = createChangeService();
+		MigrationPlan plan = migrationPlan != null ? migrationPlan
+				: observe(observationRegistry, MigrationObservations.FETCH_CHANGELOGS, () -> service.createMigrationPlan(applicationContext));
+
+		observe(observationRegistry, MigrationObservations.CONNECT, () -> {
+			connectMongoDb();
+			return null;
+		});
 
-		if (!dao.acquireProcessLock()) {
+		if (useFingerprint) {
+			if (plan.isRunAlways()) {
+				log.info("MongoBumblebee fingerprint check skipped, the changelogs contain runAlways changesets");
+			} else if (dao.isFingerprintUpToDate(plan.getFingerprint())) {
+				log.info("MongoBumblebee fingerprint {} is up to date, nothing to migrate. Exiting.", plan.getFingerprint());
+				return MigrationReport.of(MigrationReport.Status.UP_TO_DATE, Duration.ofNanos(System.nanoTime() - start));
+			}
+		}
+
+		if (!acquireProcessLock()) {
 			log.info("MongoBumblebee did not acquire process lock. Exiting.");
-			return;
+			return MigrationReport.of(MigrationReport.Status.LOCK_NOT_ACQUIRED, Duration.ofNanos(System.nanoTime() - start));
 		}
 
 		log.info("MongoBumblebee acquired process lock, starting the data migration sequence..");
 
+		Observation lockHeld = Observation.start(MigrationObservations.LOCK_HELD, observationRegistry);
+		pendingChangeSets.set(plan.getChangeLogs().stream().mapToInt(changeLog -> changeLog.getChangeSets().size()).sum());
+		appliedChangeSets.clear();
+		reappliedChangeSets.clear();
+		passedOverChangeSets.set(0);
 		try {
-			executeMigration();
+			dao.loadChangeLog();
+			ChangeSetContext context = ChangeSetContext.builder()
+					.mongoTemplate(getMongoTemplate())
+					.mongoDatabase(dao.getMongoDatabase())
+					.environment(springEnvironment)
+					.applicationContext(applicationContext)
+					.batchMigrator(new BatchMigrator(dao.getMongoDatabase(), dao.getAdminDatabase()))
+					.build();
+			executeMigration(service, plan, context);
+			if (useFingerprint) {
+				dao.saveFingerprint(plan.getFingerprint());
+			}
 		} finally {
 			log.info("MongoBumblebee is releasing process lock.");
-			dao.releaseProcessLock();
+			pendingChangeSets.set(0);
+			try {
+				dao.releaseProcessLock();
+			} finally {
+				lockHeld.stop();
+			}
 		}
 
 		log.info("MongoBumblebee has finished his job.");
+		return new MigrationReport(MigrationReport.Status.MIGRATED, List.copyOf(appliedChangeSets), List.copyOf(reappliedChangeSets),
+				passedOverChangeSets.get(), Duration.ofNanos(System.nanoTime() - start));
 	}
 
-	private void executeMigration() throws MongoBumblebeeException {
+	/**
+	 * Computes the migration plan without executing anything and without taking the process lock.
+	 * The changelogs are validated like in {@link #execute()} and the applied changesets are read with one query.
+	 *
+	 * @return all active changesets in execution order with their status
+	 * @throws MongoBumblebeeException if the changelogs are invalid or the database can't be read
+	 */
+	public List<PlannedChangeSet> plan() throws MongoBumblebeeException {
+		validateConfig();
+
+		ChangeService service = createChangeService();
+		MigrationPlan plan = service.createMigrationPlan(applicationContext);
+
+		connectMongoDbReadOnly();
+		Set<String> applied = dao.fetchAppliedChangeEntries();
+
+		List<PlannedChangeSet> changeSets = new ArrayList<>();
+		for (PlannedChangeLog changeLog : plan.getChangeLogs()) {
+			for (ChangeSetInvoker invoker : changeLog.getChangeSets()) {
+				ChangeEntry changeEntry = service.createChangeEntry(invoker.getMethod());
+				ChangeSetStatus status;
+				if (!applied.contains(ChangeEntryDao.changeLogKey(changeEntry.getChangeId(), changeEntry.getAuthor()))) {
+					status = ChangeSetStatus.NEW;
+				} else if (service.isRunAlwaysChangeSet(invoker.getMethod())) {
+					status = ChangeSetStatus.RUN_ALWAYS;
+				} else {
+					status = ChangeSetStatus.APPLIED;
+				}
+				changeSets.add(new PlannedChangeSet(changeEntry.getChangeId(), changeEntry.getAuthor(), changeEntry.getChangeLogClass(),
+						changeEntry.getChangeSetMethodName(), status));
+			}
+		}
+		log.info("MongoBumblebee planned {} changesets, {} of them pending", changeSets.size(), changeSets.stream().filter(PlannedChangeSet::isPending).count());
+		return changeSets;
+	}
+
+	private boolean acquireProcessLock() throws MongoBumblebeeException {
+		Observation observation = Observation.start(MigrationObservations.ACQUIRE_LOCK, observationRegistry);
+		boolean acquired = false;
+		try {
+			acquired = dao.acquireProcessLock();
+			return acquired;
+		} catch (MongoBumblebeeException | RuntimeException e) {
+			observation.error(e);
+			throw e;
+		} finally {
+			observation.lowCardinalityKeyValue(MigrationObservations.KEY_OUTCOME, acquired ? "acquired" : "not-acquired").stop();
+		}
+	}
+
+	private void connectMongoDb() throws MongoBumblebeeConfigurationException {
+		dao.setLockKey(resolveLockKey());
+		if (this.mongoClient != null) {
+			dao.setMongoTemplate(getMongoTemplate());
+			dao.connectMongoDb(this.mongoClient, dbName);
+		}
+	}
 
+	/**
+	 * Connects without setting up the changelog indexes and the process lock, for the methods which only read
+	 */
+	private void connectMongoDbReadOnly() throws MongoBumblebeeConfigurationException {
+		dao.setLockKey(resolveLockKey());
+		if (this.mongoClient != null) {
+			dao.setMongoTemplate(getMongoTemplate());
+			dao.connectMongoDbReadOnly(this.mongoClient, dbName);
+		}
+	}
+
+	private ChangeService createChangeService() {
 		List<String> activeProfiles;
 		if (springEnvironment != null && springEnvironment.getActiveProfiles() != null && springEnvironment.getActiveProfiles().length > 0) {
 			activeProfiles = asList(springEnvironment.getActiveProfiles());
@@ -165,70 +416,256 @@ public class MongoBumblebee implements InitializingBean {
 			log.info("'{}' used as profile because no environment was set", ChangeService.DEFAULT_PROFILE);
 			activeProfiles = asList(ChangeService.DEFAULT_PROFILE);
 		}
-		ChangeService service = new ChangeService(changeLogsScanPackage, activeProfiles);
+		return new ChangeService(changeLogsScanPackage, activeProfiles, useChangeLogIndex);
+	}
 
-		for (Class<?> changelogClass : service.fetchChangeLogs()) {
+	private void executeMigration(ChangeService service, MigrationPlan plan, ChangeSetContext context) throws MongoBumblebeeException {
+		for (List<PlannedChangeLog> group : plan.getGroups()) {
+			if (group.size() > 1 && changeLogParallelism > 1) {
+				executeChangeLogsConcurrently(service, group, context);
+			} else {
+				for (PlannedChangeLog changeLog : group) {
+					executeChangeLog(service, changeLog, context);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes the changelogs of one parallel group on a bounded thread pool and waits for all of them to finish.
+	 * The first failure is thrown after all changelogs of the group have ended.
+	 */
+	private void executeChangeLogsConcurrently(ChangeService service, List<PlannedChangeLog> changeLogs, ChangeSetContext context) throws MongoBumblebeeException {
+		log.info("Executing {} changelogs concurrently", changeLogs.size());
+		ThreadFactory threadFactory = Thread.ofPlatform().daemon().name(MB_PREFIX + "-changelog-", 1).factory();
+		List<Future<Void>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(changeLogParallelism, changeLogs.size()), threadFactory)) {
+			for (PlannedChangeLog changeLog : changeLogs) {
+				futures.add(executor.submit(() -> {
+					executeChangeLog(service, changeLog, context);
+					return null;
+				}));
+			}
+		}
 
-			Object changelogInstance = null;
+		MongoBumblebeeException failure = null;
+		for (Future<Void> future : futures) {
 			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof MongoBumblebeeException mbe ? mbe : new MongoBumblebeeException(e.getCause().getMessage(), e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MongoBumblebeeException("Interrupted while executing changelogs", e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void executeChangeSet(ChangeService service, ChangeSetInvoker invoker, Object changelogInstance, ChangeSetContext context)
+			throws MongoBumblebeeException, InvocationTargetException {
+		Method changesetMethod = invoker.getMethod();
+		ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
+
+		Observation observation = Observation.createNotStarted(MigrationObservations.CHANGESET, observationRegistry)
+				.lowCardinalityKeyValue(MigrationObservations.KEY_CHANGELOG, changeEntry.getChangeLogClass())
+				.lowCardinalityKeyValue(MigrationObservations.KEY_CHANGESET_ID, changeEntry.getChangeId())
+				.start();
+		String outcome = "failed";
+		try {
+			boolean isNew = dao.isNewChange(changeEntry);
+			if (isNew || service.isRunAlwaysChangeSet(changesetMethod)) {
+				Object result;
 				try {
-					changelogInstance = changelogClass.getDeclaredConstructor(ApplicationContext.class).newInstance(applicationContext); 
-				} catch ( NoSuchMethodException e ) {
-					changelogInstance = changelogClass.getConstructor().newInstance();
+					result = apply(service, invoker, changelogInstance, changeEntry, context);
+				} catch (MongoBumblebeeException | InvocationTargetException | RuntimeException e) {
+					saveFailure(changeEntry, e);
+					throw e;
+				}
+				if (isNew) {
+					outcome = "applied";
+					appliedChangeSets.add(changeEntry.getChangeId());
+					log.info(changeEntry + " applied. Return= " + result);
+				} else {
+					outcome = "reapplied";
+					reappliedChangeSets.add(changeEntry.getChangeId());
+					log.info(changeEntry + " reapplied. Return= " + result);
 				}
-				List<Method> changesetMethods = service.fetchChangeSets(changelogInstance.getClass());
-
-				for (Method changesetMethod : changesetMethods) {
-					ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
-
-					try {
-						if (dao.isNewChange(changeEntry)) {
-							Object result = executeChangeSetMethod(changesetMethod, changelogInstance, dao.getMongoDatabase());
-							changeEntry.setResult(result);
-							dao.save(changeEntry);
-							log.info(changeEntry + " applied. Return= " + result);
-						} else if (service.isRunAlwaysChangeSet(changesetMethod)) {
-							Object result = executeChangeSetMethod(changesetMethod, changelogInstance, dao.getMongoDatabase());
-							changeEntry.setResult(result);
-							dao.save(changeEntry);
-							log.info(changeEntry + " reapplied. Return= " + result);
-						} else {
-							log.info(changeEntry + " passed over");
-						}
-						dao.updateLock();
-					} catch (MongoBumblebeeChangeSetException e) {
-						log.error(e.getMessage());
+			} else {
+				outcome = "passed-over";
+				passedOverChangeSets.incrementAndGet();
+				log.info(changeEntry + " passed over");
+			}
+		} catch (MongoBumblebeeException | InvocationTargetException | RuntimeException e) {
+			observation.error(e instanceof InvocationTargetException ite ? ite.getTargetException() : e);
+			throw e;
+		} finally {
+			observation.lowCardinalityKeyValue(MigrationObservations.KEY_OUTCOME, outcome).stop();
+			pendingChangeSets.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Records a changeset which has failed, so its execution can be found in the changelog history. The entry of a runAlways
+	 * changeset applied before is replaced, the changeset counts as new until it succeeds again. A failure to record it doesn't
+	 * hide the failure of the changeset.
+	 */
+	private void saveFailure(ChangeEntry changeEntry, Exception failure) {
+		if (changeEntry.getStartedAt() == null) {
+			return;
+		}
+		changeEntry.finished(ChangeEntry.OUTCOME_FAILED);
+		try {
+			dao.saveFailure(changeEntry);
+		} catch (MongoBumblebeeException | RuntimeException e) {
+			log.warn("Failure of {} couldn't be recorded in the changelog", changeEntry, e);
+			failure.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * Executes the changeset and records it in the changelog, both in one transaction for transactional changesets
+	 *
+	 * @return result of the changeset
+	 */
+	private Object apply(ChangeService service, ChangeSetInvoker invoker, Object changelogInstance, ChangeEntry changeEntry, ChangeSetContext context)
+			throws MongoBumblebeeException, InvocationTargetException {
+		if (service.isTransactionalChangeSet(invoker.getMethod())) {
+			if (dao.isTransactionSupported()) {
+				return applyInTransaction(invoker, changelogInstance, changeEntry, context);
+			}
+			log.warn("{} is transactional, but the database doesn't support transactions. It is executed without transaction.", changeEntry);
+		}
+		ChangeSetContext changeSetContext = withCheckpoint(invoker, changeEntry, context);
+		changeEntry.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+		Object result = applyDeclaredIndexes(invoker.invoke(changelogInstance, changeSetContext));
+		changeEntry.finished(ChangeEntry.OUTCOME_SUCCESS);
+		changeEntry.setResult(result);
+		observe(observationRegistry, MigrationObservations.SAVE, () -> {
+			dao.save(changeEntry);
+			return null;
+		});
+		return result;
+	}
+
+	/**
+	 * Executes the changeset with session bound MongoTemplate and MongoDatabase and writes its changelog entry in the same
+	 * transaction. The driver retries the whole transaction on transient errors.
+	 */
+	private Object applyInTransaction(ChangeSetInvoker invoker, Object changelogInstance, ChangeEntry changeEntry, ChangeSetContext context)
+			throws MongoBumblebeeException, InvocationTargetException {
+		try (ClientSession session = dao.startSession()) {
+			changeEntry.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+			return session.withTransaction(() -> {
+				MongoTemplate sessionTemplate = context.getMongoTemplate().withSession(session);
+				ChangeSetContext sessionContext = context.toBuilder()
+						.mongoTemplate(sessionTemplate)
+						.mongoDatabase(sessionTemplate.getDb())
+						.session(session)
+						.build();
+				try {
+					Object result = invoker.invoke(changelogInstance, sessionContext);
+					if (result instanceof DeclaredIndexes) {
+						throw new MongoBumblebeeChangeSetException(changeEntry + " is transactional, declared indexes are built outside of the transaction");
 					}
+					changeEntry.finished(ChangeEntry.OUTCOME_SUCCESS);
+					changeEntry.setResult(result);
+					observe(observationRegistry, MigrationObservations.SAVE, () -> {
+						dao.save(changeEntry, session);
+						return null;
+					});
+					return result;
+				} catch (MongoBumblebeeException | InvocationTargetException e) {
+					// aborts the transaction, unwrapped below
+					throw new TransactionFailure(e);
 				}
-			} catch (NoSuchMethodException | IllegalAccessException |InstantiationException e) {
-				throw new MongoBumblebeeException(e.getMessage(), e);
-			} catch (InvocationTargetException e) {
-				Throwable targetException = e.getTargetException();
-				throw new MongoBumblebeeException(targetException.getMessage(), e);
+			});
+		} catch (TransactionFailure e) {
+			if (e.getCause() instanceof InvocationTargetException ite) {
+				throw ite;
 			}
+			throw (MongoBumblebeeException) e.getCause();
 		}
 	}
 
-	private Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, MongoDatabase mongoDatabase) throws IllegalAccessException, InvocationTargetException, MongoBumblebeeChangeSetException {
-		if (changeSetMethod.getParameterTypes().length == 1 && changeSetMethod.getParameterTypes()[0].equals(MongoTemplate.class)) {
-			log.debug("method with MongoTemplate argument");
+	/**
+	 * Carries a checked exception out of a transaction body
+	 */
+	private static class TransactionFailure extends RuntimeException {
 
-			return changeSetMethod.invoke(changeLogInstance, new MongoTemplate(mongoClient, dbName));
-		} else if (changeSetMethod.getParameterTypes().length == 2 && changeSetMethod.getParameterTypes()[0].equals(MongoTemplate.class) && changeSetMethod.getParameterTypes()[1].equals(Environment.class)) {
-			log.debug("method with MongoTemplate and environment arguments");
+		private static final long serialVersionUID = 1L;
 
-			return changeSetMethod.invoke(changeLogInstance, new MongoTemplate(mongoClient, dbName), springEnvironment);
-		} else if (changeSetMethod.getParameterTypes().length == 1 && changeSetMethod.getParameterTypes()[0].equals(MongoDatabase.class)) {
-			log.debug("method with DB argument");
+		TransactionFailure(Exception cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Adds the checkpoint of the changeset to the context, if the changeset method wants to get it
+	 */
+	private ChangeSetContext withCheckpoint(ChangeSetInvoker invoker, ChangeEntry changeEntry, ChangeSetContext context) throws MongoBumblebeeConnectionException {
+		if (!invoker.hasParameter(ChangeSetCheckpoint.class)) {
+			return context;
+		}
+		Document previous = dao.findCheckpoint(changeEntry);
+		if (previous != null) {
+			log.info("{} resumed from checkpoint {}", changeEntry, previous.toJson());
+		}
+		ChangeSetCheckpoint checkpoint = new ChangeSetCheckpoint(previous, document -> {
+			try {
+				dao.saveCheckpoint(changeEntry, document);
+			} catch (MongoBumblebeeException e) {
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+		});
+		return context.toBuilder().checkpoint(checkpoint).build();
+	}
 
-			return changeSetMethod.invoke(changeLogInstance, mongoDatabase);
-		} else if (changeSetMethod.getParameterTypes().length == 0) {
-			log.debug("method with no params");
+	/**
+	 * Builds the missing indexes if the changeset has returned {@link DeclaredIndexes}
+	 *
+	 * @return result saved with the change entry, the names of the created and existing indexes for declared indexes
+	 */
+	private Object applyDeclaredIndexes(Object result) throws MongoBumblebeeChangeSetException {
+		if (result instanceof DeclaredIndexes declaredIndexes) {
+			return new DeclaredIndexDao(dao.getMongoDatabase(), dao.getAdminDatabase()).apply(declaredIndexes);
+		}
+		return result;
+	}
 
-			return changeSetMethod.invoke(changeLogInstance);
-		} else {
-			throw new MongoBumblebeeChangeSetException("ChangeSet method " + changeSetMethod.getName() + " has wrong arguments list. Please see docs for more info!");
+	private void executeChangeLog(ChangeService service, PlannedChangeLog changeLog, ChangeSetContext context) throws MongoBumblebeeException {
+		Class<?> changelogClass = changeLog.getChangeLogClass();
+		Object changelogInstance = null;
+		try {
+			try {
+				changelogInstance = changelogClass.getDeclaredConstructor(ApplicationContext.class).newInstance(applicationContext); 
+			} catch ( NoSuchMethodException e ) {
+				changelogInstance = changelogClass.getConstructor().newInstance();
+			}
+			for (ChangeSetInvoker invoker : changeLog.getChangeSets()) {
+				executeChangeSet(service, invoker, changelogInstance, context);
+			}
+		} catch (NoSuchMethodException | IllegalAccessException |InstantiationException e) {
+			throw new MongoBumblebeeException(e.getMessage(), e);
+		} catch (InvocationTargetException e) {
+			Throwable targetException = e.getTargetException();
+			throw new MongoBumblebeeException(targetException.getMessage(), e);
+		}
+	}
+
+	/**
+	 * The template is created once and shared by all changesets and the index setup, because creating a template
+	 * initializes a mapping context and converters.
+	 */
+	private synchronized MongoTemplate getMongoTemplate() {
+		if (mongoTemplate == null) {
+			mongoTemplate = new MongoTemplate(mongoClient, dbName);
 		}
+		return mongoTemplate;
 	}
 
 	private void validateConfig() throws MongoBumblebeeConfigurationException {
@@ -240,15 +677,58 @@ public class MongoBumblebee implements InitializingBean {
 		}
 	}
 
+	/**
+	 * Reads the recorded executions of the changelog collection, latest first. No process lock is taken and nothing is written.
+	 *
+	 * @param since earliest timestamp of the returned entries, null for all entries
+	 * @param limit maximum number of returned entries, 0 for no limit
+	 * @return changelog entries with start, end, duration, host, lock owner, return value and outcome of their execution
+	 * @throws MongoBumblebeeException if the configuration is invalid or the database can't be read
+	 */
+	public List<ChangeEntry> findChangeLogHistory(Date since, int limit) throws MongoBumblebeeException {
+		validateConfig();
+		connectMongoDbReadOnly();
+		return dao.findChangeLogHistory(since, limit);
+	}
+
+	/**
+	 * Reads the changesets with the longest execution. No process lock is taken and nothing is written.
+	 *
+	 * @param since earliest timestamp of the returned entries, null for all entries
+	 * @param limit maximum number of returned entries, 0 for no limit
+	 * @return changelog entries with their recorded execution, slowest first
+	 * @throws MongoBumblebeeException if the configuration is invalid or the database can't be read
+	 */
+	public List<ChangeEntry> findSlowestChangeSets(Date since, int limit) throws MongoBumblebeeException {
+		validateConfig();
+		connectMongoDbReadOnly();
+		return dao.findSlowestChangeSets(since, limit);
+	}
+
 	/**
 	 * @return true if an execution is in progress, in any process.
 	 * @throws MongoBumblebeeConnectionException
 	 *             exception
 	 */
 	public boolean isExecutionInProgress() throws MongoBumblebeeConnectionException {
+		dao.setLockKey(resolveLockKey());
 		return dao.isProccessLockHeld();
 	}
 
+	/**
+	 * @return key of the process lock of this migration
+	 */
+	String resolveLockKey() {
+		if (lockKey != null) {
+			return lockKey;
+		}
+		return switch (lockScope) {
+			case DATABASE -> LockDao.DEFAULT_LOCK_KEY;
+			case SCAN_PACKAGE -> LockDao.DEFAULT_LOCK_KEY + ":" + changeLogsScanPackage;
+			case CHANGELOG_COLLECTION -> LockDao.DEFAULT_LOCK_KEY + ":" + dao.getChangelogCollectionName();
+		};
+	}
+
 	/**
 	 * Package name where @ChangeLog-annotated classes are kept.
 	 *
@@ -261,6 +741,101 @@ public class MongoBumblebee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Registry the migration phases are observed with, see {@link MigrationObservations} for the recorded observations.
+	 * In a Spring context an ObservationRegistry bean is used if none is set.
+	 *
+	 * @param observationRegistry
+	 *            Micrometer observation registry, default is a no-op registry
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setObservationRegistry(ObservationRegistry observationRegistry) {
+		this.observationRegistry = observationRegistry;
+		return this;
+	}
+
+	/**
+	 * Number of changesets of the running migration, which are not executed or passed over yet.
+	 * Can be registered as gauge, e.g. {@code Gauge.builder("mbb.changesets.pending", runner, MongoBumblebee::getPendingChangeSetCount)}
+	 *
+	 * @return pending changesets, 0 if no migration is running
+	 */
+	public int getPendingChangeSetCount() {
+		return pendingChangeSets.get();
+	}
+
+	/**
+	 * Feature which lets {@link #afterPropertiesSet()} start the migration with {@link #executeAsync()} instead of running it,
+	 * so the Spring context finishes starting while the migration runs. Readiness can be gated on {@link #getMigration()}.
+	 *
+	 * @param async
+	 *            MongoBumblebee will migrate asynchronously in a Spring context if this option is set to true, default is false
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setAsync(boolean async) {
+		this.async = async;
+		return this;
+	}
+
+	/**
+	 * @param executor
+	 *            Executor of {@link #executeAsync()}, default starts a new virtual thread per migration
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * @return future of the migration last started by {@link #executeAsync()}, null if none was started
+	 */
+	public CompletableFuture<MigrationReport> getMigration() {
+		return migration;
+	}
+
+	/**
+	 * Feature which enables/disables the fingerprint check. If enabled, a hash over all active changesets is stored after every
+	 * completed migration. A later execution with the same changesets ends after reading this hash, without taking the process lock
+	 * and without checking every single changeset. The check is skipped as long as there are runAlways changesets.
+	 * <p>
+	 * CAUTION! Changelog entries removed manually are not executed again, as long as the changesets themselves don't change
+	 *
+	 * @param useFingerprint
+	 *            MongoBumblebee will check the fingerprint if this option is set to true, default is false
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setUseFingerprint(boolean useFingerprint) {
+		this.useFingerprint = useFingerprint;
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables the compile time changelog index. If enabled and an index generated by the MongoBumblebee
+	 * annotation processor lists changelogs of the scan package, no classpath scanning takes place.
+	 *
+	 * @param useChangeLogIndex
+	 *            MongoBumblebee will use the changelog index if this option is set to true (default)
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setUseChangeLogIndex(boolean useChangeLogIndex) {
+		this.useChangeLogIndex = useChangeLogIndex;
+		return this;
+	}
+
+	/**
+	 * Maximum number of changelogs executed concurrently. Only changelogs sharing the same {@link ChangeLog#parallelGroup()} and
+	 * following each other in the changelog order are executed concurrently, all other changelogs are executed one after another.
+	 *
+	 * @param changeLogParallelism
+	 *            Number of concurrently executed changelogs, 1 (default) executes all changelogs sequentially
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setChangeLogParallelism(int changeLogParallelism) {
+		this.changeLogParallelism = changeLogParallelism;
+		return this;
+	}
+
 	/**
 	 * @return true if MongoBumblebee runner is enabled and able to run, otherwise false
 	 */
@@ -292,6 +867,20 @@ public class MongoBumblebee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Feature which enables/disables watching the lock collection while waiting for the lock. If enabled, a waiting process retries
+	 * as soon as the lock is released instead of polling in the poll rate. This requires change streams (replica set or sharded
+	 * cluster). Without change streams the lock is polled with exponential backoff and jitter, capped by the poll rate.
+	 *
+	 * @param watchLockRelease
+	 *            MongoBumblebee will watch the lock if this option is set to true and waitForLock is true
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setWatchLockRelease(boolean watchLockRelease) {
+		this.dao.setWatchLockRelease(watchLockRelease);
+		return this;
+	}
+
 	/**
 	 * Waiting time for acquiring lock if waitForLock is true
 	 *
@@ -316,6 +905,46 @@ public class MongoBumblebee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Feature which enables/disables reading the whole changelog collection once at the start of a migration.
+	 * The decision whether a changeset is new is then made in memory instead of querying the database for every changeset.
+	 *
+	 * @param preloadChangeLog
+	 *            MongoBumblebee will preload the changelog collection if this option is set to true
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setPreloadChangeLog(boolean preloadChangeLog) {
+		this.dao.setPreloadChangeLog(preloadChangeLog);
+		return this;
+	}
+
+	/**
+	 * Number of changelog entries written together with a single bulk write. Entries are buffered until the batch is full
+	 * and always written before the process lock is released. If a process dies, the changesets executed since the last
+	 * write are not recorded and are executed again by the next run, so they should be idempotent.
+	 *
+	 * @param changeLogBatchSize
+	 *            Number of changelog entries per write, 1 (default) writes every entry immediately
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setChangeLogBatchSize(int changeLogBatchSize) {
+		this.dao.setChangeLogBatchSize(changeLogBatchSize);
+		return this;
+	}
+
+	/**
+	 * Interval in which the process lock is refreshed by a background thread while the migration runs. It has to be
+	 * (much) shorter than the lock wait time, otherwise other processes consider the lock starved and take it over.
+	 *
+	 * @param changeLogLockHeartbeatInterval
+	 *            Interval in seconds, 0 disables the heartbeat
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setChangeLogLockHeartbeatInterval(long changeLogLockHeartbeatInterval) {
+		this.dao.setChangeLogLockHeartbeatInterval(changeLogLockHeartbeatInterval);
+		return this;
+	}
+
 	/**
 	 * Feature which enables/disables throwing MongoBumblebeeLockException if MongoBumblebee can not obtain lock
 	 *
@@ -340,6 +969,19 @@ public class MongoBumblebee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Set the MongoTemplate passed to changesets, e.g. the template of the Spring context with its mapping configuration.
+	 * It has to operate on the same database as MongoBumblebee. If not set, MongoBumblebee creates a template once.
+	 *
+	 * @param mongoTemplate
+	 *            org.springframework.data.mongodb.core.MongoTemplate object to inject
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setMongoTemplate(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+		return this;
+	}
+
 	/**
 	 * Overwrites a default MongoBumblebee changelog collection hardcoded in DEFAULT_CHANGELOG_COLLECTION_NAME.
 	 *
@@ -354,6 +996,18 @@ public class MongoBumblebee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Overwrites the default MongoBumblebee metadata collection (mbbmetadata), which holds the fingerprint of the last migration
+	 *
+	 * @param metadataCollectionName
+	 *            a new metadata collection name
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setMetadataCollectionName(String metadataCollectionName) {
+		this.dao.setMetadataCollectionName(metadataCollectionName);
+		return this;
+	}
+
 	/**
 	 * Overwrites a default MongoBumblebee lock collection hardcoded in DEFAULT_LOCK_COLLECTION_NAME
 	 *
@@ -366,6 +1020,32 @@ public class MongoBumblebee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Scopes the process lock. By default one lock serializes all migrations of the database. Services with their own scan package
+	 * or changelog collection, which change disjoint collections, may migrate the same database concurrently with a narrower scope.
+	 *
+	 * @param lockScope
+	 *            scope of the process lock, default is {@link LockScope#DATABASE}
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setLockScope(@NonNull LockScope lockScope) {
+		this.lockScope = lockScope;
+		return this;
+	}
+
+	/**
+	 * Sets the key of the process lock explicitly, e.g. one key per set of collections changed by the changelogs. Migrations with
+	 * different keys don't exclude each other.
+	 *
+	 * @param lockKey
+	 *            key of the process lock, overrides the lock scope
+	 * @return MongoBumblebee object for fluent interface
+	 */
+	public MongoBumblebee setLockKey(String lockKey) {
+		this.lockKey = lockKey;
+		return this;
+	}
+
 	/**
 	 * Closes the Mongo instance used by MongoBumblebee. This will close either the connection MongoBumblebee was initiated with or that which was internally created.
 	 */
@@ -0,0 +1,168 @@
+package de.hdi.mongobumblebee;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.springframework.lang.NonNull;
+
+import com.mongodb.client.MongoClient;
+
+import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeException;
+import de.hdi.mongobumblebee.utils.MigrationPlan;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migrates many databases with the same changelogs from one process, e.g. one database per tenant. The changelogs are scanned and
+ * validated once, then the databases are migrated concurrently. Each database has its own process lock and changelog collection.
+ * <pre>
+ * MultiDatabaseReport report = new MultiDatabaseMongoBumblebee(mongoClient,
+ *     dbName -&gt; new MongoBumblebee(mongoClient, dbName).setChangeLogsScanPackage("com.example.yourapp.changelogs"))
+ *   .setDatabasePattern(Pattern.compile("tenant_.*"))
+ *   .setParallelism(16)
+ *   .execute();
+ * </pre>
+ * The runners created by the factory must only differ in their database, the changelogs of the first one are used for all.
+ */
+@Slf4j
+public class MultiDatabaseMongoBumblebee {
+
+	/** Number of databases migrated concurrently */
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	private final MongoClient mongoClient;
+	private final Function<String, MongoBumblebee> runnerFactory;
+	private List<String> databaseNames;
+	private Pattern databasePattern;
+	private int parallelism = DEFAULT_PARALLELISM;
+
+	/**
+	 * @param mongoClient
+	 *            database connection client, used to discover the databases
+	 * @param runnerFactory
+	 *            creates the configured runner of a database
+	 */
+	public MultiDatabaseMongoBumblebee(@NonNull MongoClient mongoClient, @NonNull Function<String, MongoBumblebee> runnerFactory) {
+		this.mongoClient = mongoClient;
+		this.runnerFactory = runnerFactory;
+	}
+
+	/**
+	 * Migrates all databases. The failure of a database doesn't stop the migration of the others, it is recorded in the report.
+	 *
+	 * @return report of all databases
+	 * @throws MongoBumblebeeException if no databases are configured or the changelogs are invalid
+	 */
+	public MultiDatabaseReport execute() throws MongoBumblebeeException {
+		long start = System.nanoTime();
+		List<String> databases = resolveDatabaseNames();
+		if (databases.isEmpty()) {
+			log.info("MongoBumblebee found no databases to migrate. Exiting.");
+			return new MultiDatabaseReport(Map.of(), Map.of(), Duration.ofNanos(System.nanoTime() - start));
+		}
+
+		Map<String, MongoBumblebee> runners = new LinkedHashMap<>();
+		for (String database : databases) {
+			runners.put(database, runnerFactory.apply(database));
+		}
+		// the changelogs are scanned and validated once for all databases
+		MigrationPlan plan = runners.values().iterator().next().createMigrationPlan();
+		log.info("MongoBumblebee migrates {} databases, {} concurrently", databases.size(), Math.min(parallelism, databases.size()));
+
+		Map<String, MigrationReport> reports = new ConcurrentHashMap<>();
+		Map<String, Throwable> failures = new ConcurrentHashMap<>();
+		AtomicInteger finished = new AtomicInteger();
+		try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, databases.size()),
+				Thread.ofVirtual().name(MongoBumblebee.MB_PREFIX + "-database-", 1).factory())) {
+			runners.forEach((database, runner) -> executor.execute(() -> {
+				try {
+					MigrationReport report = runner.migrate(plan);
+					reports.put(database, report);
+					log.info("MongoBumblebee migrated database {} ({}/{}): {}", database, finished.incrementAndGet(), databases.size(), report.getStatus());
+				} catch (Throwable e) {
+					// an error must not leave the database without report or failure
+					failures.put(database, e);
+					log.error("MongoBumblebee migration of database {} failed ({}/{})", database, finished.incrementAndGet(), databases.size(), e);
+				}
+			}));
+		}
+
+		MultiDatabaseReport report = new MultiDatabaseReport(ordered(databases, reports), ordered(databases, failures), Duration.ofNanos(System.nanoTime() - start));
+		log.info("MongoBumblebee has finished {} databases, {} failed.", databases.size(), failures.size());
+		return report;
+	}
+
+	/**
+	 * @return the configured databases and the existing databases matching the pattern, in this order and without duplicates
+	 */
+	List<String> resolveDatabaseNames() throws MongoBumblebeeConfigurationException {
+		if (databaseNames == null && databasePattern == null) {
+			throw new MongoBumblebeeConfigurationException("Databases are not set: use setDatabaseNames or setDatabasePattern");
+		}
+		List<String> databases = new ArrayList<>();
+		if (databaseNames != null) {
+			databases.addAll(databaseNames);
+		}
+		if (databasePattern != null) {
+			for (String database : mongoClient.listDatabaseNames()) {
+				if (databasePattern.matcher(database).matches() && !databases.contains(database)) {
+					databases.add(database);
+				}
+			}
+		}
+		return databases;
+	}
+
+	private static <T> Map<String, T> ordered(List<String> databases, Map<String, T> values) {
+		Map<String, T> ordered = new LinkedHashMap<>();
+		for (String database : databases) {
+			if (values.containsKey(database)) {
+				ordered.put(database, values.get(database));
+			}
+		}
+		return ordered;
+	}
+
+	/**
+	 * @param databaseNames
+	 *            databases to migrate
+	 * @return MultiDatabaseMongoBumblebee object for fluent interface
+	 */
+	public MultiDatabaseMongoBumblebee setDatabaseNames(List<String> databaseNames) {
+		this.databaseNames = List.copyOf(databaseNames);
+		return this;
+	}
+
+	/**
+	 * @param databasePattern
+	 *            all existing databases whose names match the pattern completely are migrated
+	 * @return MultiDatabaseMongoBumblebee object for fluent interface
+	 */
+	public MultiDatabaseMongoBumblebee setDatabasePattern(Pattern databasePattern) {
+		this.databasePattern = databasePattern;
+		return this;
+	}
+
+	/**
+	 * @param parallelism
+	 *            number of databases migrated concurrently, default is {@value #DEFAULT_PARALLELISM}
+	 * @return MultiDatabaseMongoBumblebee object for fluent interface
+	 */
+	public MultiDatabaseMongoBumblebee setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+}
@@ -0,0 +1,27 @@
+package de.hdi.mongobumblebee;
+
+import java.time.Duration;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * Result of the migration of many databases, see {@link MultiDatabaseMongoBumblebee#execute()}
+ */
+@Value
+public class MultiDatabaseReport {
+
+	/** Reports of the databases migrated without failure, by database name */
+	Map<String, MigrationReport> reports;
+	/** Failures of the databases whose migration failed, by database name */
+	Map<String, Throwable> failures;
+	Duration duration;
+
+	/**
+	 * @return true if no database migration failed
+	 */
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+}
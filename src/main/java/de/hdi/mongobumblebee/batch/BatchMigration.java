@@ -0,0 +1,367 @@
+package de.hdi.mongobumblebee.batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migration of the documents of one collection. The documents are read in {@code _id} order and in batches by a reader thread,
+ * while the calling thread maps the documents of the previous batch to write operations and sends them with one bulk write.
+ * At most {@link #setQueueCapacity(int) queueCapacity} batches are read ahead, so the memory needed is bounded.
+ * <p>
+ * With a {@link #setParallelism(int) parallelism} above 1 the documents are split into {@code _id} ranges of about the same size,
+ * which are migrated concurrently, each one with its own cursor and bulk writes.
+ * <p>
+ * The writes can be limited to a {@link #setMaxWritesPerSecond(int) maximum rate}, and they can pause while the secondaries
+ * {@link #setMaxReplicationLag(Duration) lag} too far behind the primary.
+ */
+@Slf4j
+public class BatchMigration {
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final int DEFAULT_QUEUE_CAPACITY = 2;
+	public static final int DEFAULT_PARALLELISM = 1;
+
+	/** Minimum time between two samples of the replication lag */
+	private static final Duration LAG_SAMPLE_INTERVAL = Duration.ofSeconds(1);
+	/** Time the writes pause before the replication lag is sampled again */
+	private static final Duration LAG_PAUSE = Duration.ofSeconds(1);
+
+	private static final String ID = "_id";
+
+	/** Marks the end of the documents in the queue */
+	private static final List<Document> END = List.of();
+
+	private final MongoCollection<Document> collection;
+	private final MongoDatabase adminDatabase;
+	private Bson filter = new Document();
+	private Bson projection;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int parallelism = DEFAULT_PARALLELISM;
+	private int maxWritesPerSecond;
+	private Duration maxReplicationLag;
+	private ChangeSetCheckpoint checkpoint;
+
+	BatchMigration(MongoCollection<Document> collection, MongoDatabase adminDatabase) {
+		this.collection = collection;
+		this.adminDatabase = adminDatabase;
+	}
+
+	/**
+	 * @param filter documents to migrate, default is all documents
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setFilter(Bson filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * @param projection fields read, default is the whole document. The {@code _id} must not be excluded.
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setProjection(Bson projection) {
+		this.projection = projection;
+		return this;
+	}
+
+	/**
+	 * @param batchSize documents read and written at once, default is {@value #DEFAULT_BATCH_SIZE}
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * @param queueCapacity batches read ahead while the current batch is written, default is {@value #DEFAULT_QUEUE_CAPACITY}
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * The documents are split into this number of {@code _id} ranges with {@code $bucketAuto}, and the ranges are migrated concurrently.
+	 * The migration function is called by several threads then. Ranges can't be combined with a {@link #setCheckpoint(ChangeSetCheckpoint) checkpoint}.
+	 *
+	 * @param parallelism ranges migrated concurrently, default is {@value #DEFAULT_PARALLELISM}
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @param maxWritesPerSecond maximum number of write operations per second, summed up over all ranges. Default is 0, no limit.
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setMaxWritesPerSecond(int maxWritesPerSecond) {
+		this.maxWritesPerSecond = maxWritesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Before a batch is written, the lag of the secondaries is sampled with {@code replSetGetStatus} (at most once per second).
+	 * While the slowest secondary is further behind the primary than allowed, the writes pause. If the lag can't be sampled
+	 * (no replica set, missing privileges), a warning is logged and it is not checked.
+	 *
+	 * @param maxReplicationLag maximum lag of the secondaries, default is null, the lag isn't checked
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setMaxReplicationLag(Duration maxReplicationLag) {
+		this.maxReplicationLag = maxReplicationLag;
+		return this;
+	}
+
+	/**
+	 * Makes the migration resumable. A migration with a checkpoint of an earlier run continues after its last document.
+	 * After every written batch the checkpoint is saved.
+	 *
+	 * @param checkpoint checkpoint of the changeset
+	 * @return BatchMigration object for fluent interface
+	 */
+	public BatchMigration setCheckpoint(ChangeSetCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+		return this;
+	}
+
+	/**
+	 * Runs the migration
+	 *
+	 * @param migration maps a document to the write operation migrating it, null if the document needs no change
+	 * @return number of documents read and write operations executed
+	 */
+	public BatchResult run(Function<Document, WriteModel<Document>> migration) {
+		WriteThrottle throttle = new WriteThrottle(maxWritesPerSecond, maxReplicationLag, adminDatabase, LAG_SAMPLE_INTERVAL, LAG_PAUSE);
+		BatchResult result;
+		if (parallelism > 1) {
+			if (checkpoint != null) {
+				throw new IllegalStateException("A checkpoint can't be used for the parallel migration of " + collection.getNamespace());
+			}
+			result = runRanges(splitRanges(), migration, throttle);
+		} else {
+			Bson query = filter;
+			if (checkpoint != null && checkpoint.getLastId() != null) {
+				query = Filters.and(filter, Filters.gt(ID, checkpoint.getLastId()));
+			}
+			result = runRange(query, migration, throttle, new AtomicBoolean(), new AtomicLong());
+		}
+		log.info("{} documents of {} read, {} written", result.getDocuments(), collection.getNamespace().getCollectionName(), result.getWrites());
+		return result;
+	}
+
+	/**
+	 * Splits the filtered documents into {@code _id} ranges with {@code $bucketAuto}. The first and the last range are open,
+	 * so documents inserted while the migration runs are not lost.
+	 *
+	 * @return range filters, empty if there are no documents
+	 */
+	List<Bson> splitRanges() {
+		List<Object> lowerBounds = new ArrayList<>();
+		// $bucketAuto sorts all ids, which exceeds the memory limit of a pipeline stage on large collections
+		for (Document bucket : collection.aggregate(List.of(Aggregates.match(filter), Aggregates.project(new Document(ID, 1)), Aggregates.bucketAuto("$" + ID, parallelism)))
+				.allowDiskUse(true)) {
+			lowerBounds.add(bucket.get(ID, Document.class).get("min"));
+		}
+
+		List<Bson> ranges = new ArrayList<>(lowerBounds.size());
+		for (int i = 0; i < lowerBounds.size(); i++) {
+			List<Bson> range = new ArrayList<>(List.of(filter));
+			if (i > 0) {
+				range.add(Filters.gte(ID, lowerBounds.get(i)));
+			}
+			if (i < lowerBounds.size() - 1) {
+				range.add(Filters.lt(ID, lowerBounds.get(i + 1)));
+			}
+			ranges.add(Filters.and(range));
+		}
+		return ranges;
+	}
+
+	/**
+	 * Migrates the ranges on a thread per range and sums up their results. If a range fails, the other ranges stop after their current batch
+	 * and the first failure is thrown.
+	 */
+	private BatchResult runRanges(List<Bson> ranges, Function<Document, WriteModel<Document>> migration, WriteThrottle throttle) {
+		log.info("Migrating {} in {} ranges", collection.getNamespace().getCollectionName(), ranges.size());
+		AtomicBoolean stopped = new AtomicBoolean();
+		AtomicLong progress = new AtomicLong();
+		List<Future<BatchResult>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(MongoBumblebee.MB_PREFIX + "-batch-range-", 1).factory())) {
+			for (Bson range : ranges) {
+				futures.add(executor.submit(() -> {
+					try {
+						return runRange(range, migration, throttle, stopped, progress);
+					} catch (RuntimeException e) {
+						stopped.set(true);
+						throw e;
+					}
+				}));
+			}
+		}
+
+		long documents = 0;
+		long writes = 0;
+		RuntimeException failure = null;
+		for (Future<BatchResult> future : futures) {
+			try {
+				BatchResult result = future.get();
+				documents += result.getDocuments();
+				writes += result.getWrites();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause().getMessage(), e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while migrating " + collection.getNamespace(), e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return new BatchResult(documents, writes);
+	}
+
+	/**
+	 * Migrates the documents of one range with a reader thread, until all are migrated or the migration is stopped
+	 *
+	 * @param progress documents migrated by all ranges
+	 */
+	private BatchResult runRange(Bson query, Function<Document, WriteModel<Document>> migration, WriteThrottle throttle, AtomicBoolean stopped, AtomicLong progress) {
+		Reader reader = new Reader(query, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)));
+		Thread readerThread = Thread.ofVirtual().name(MongoBumblebee.MB_PREFIX + "-batch-reader").start(reader);
+
+		long processedBefore = checkpoint == null ? 0 : checkpoint.getProcessed();
+		long documents = 0;
+		long writes = 0;
+		try {
+			for (List<Document> batch = reader.next(); batch != END && !stopped.get(); batch = reader.next()) {
+				List<WriteModel<Document>> models = new ArrayList<>(batch.size());
+				for (Document document : batch) {
+					WriteModel<Document> model = migration.apply(document);
+					if (model != null) {
+						models.add(model);
+					}
+				}
+				if (!models.isEmpty()) {
+					throttle.acquire(models.size());
+					collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+				}
+				documents += batch.size();
+				writes += models.size();
+				if (checkpoint != null) {
+					checkpoint.save(batch.get(batch.size() - 1).get(ID), processedBefore + documents);
+				}
+				log.debug("{} documents of {} migrated", progress.addAndGet(batch.size()), collection.getNamespace().getCollectionName());
+			}
+		} finally {
+			reader.cancel(readerThread);
+		}
+		return new BatchResult(documents, writes);
+	}
+
+	/**
+	 * Reads the documents into the queue until all are read or the migration is cancelled
+	 */
+	private class Reader implements Runnable {
+
+		private final Bson query;
+		private final BlockingQueue<List<Document>> queue;
+		private volatile boolean cancelled;
+		private volatile RuntimeException failure;
+
+		Reader(Bson query, BlockingQueue<List<Document>> queue) {
+			this.query = query;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			try (MongoCursor<Document> cursor = collection.find(query).projection(projection).sort(Sorts.ascending(ID)).batchSize(batchSize).iterator()) {
+				List<Document> batch = new ArrayList<>(batchSize);
+				while (!cancelled && cursor.hasNext()) {
+					batch.add(cursor.next());
+					if (batch.size() >= batchSize) {
+						queue.put(batch);
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+				if (!batch.isEmpty() && !cancelled) {
+					queue.put(batch);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failure = new IllegalStateException("Interrupted while reading " + collection.getNamespace(), e);
+			} catch (RuntimeException e) {
+				failure = e;
+			} finally {
+				if (!cancelled) {
+					try {
+						queue.put(END);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		}
+
+		List<Document> next() {
+			try {
+				List<Document> batch = queue.take();
+				if (batch == END && failure != null) {
+					throw failure;
+				}
+				return batch;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while migrating " + collection.getNamespace(), e);
+			}
+		}
+
+		/**
+		 * Stops reading and waits for the reader thread. Clearing the queue releases a reader waiting for space.
+		 */
+		void cancel(Thread readerThread) {
+			cancelled = true;
+			queue.clear();
+			try {
+				readerThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,46 @@
+package de.hdi.mongobumblebee.batch;
+
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Entry point for changesets migrating large collections document by document. An instance is passed to changeset methods
+ * declaring a parameter of this type.
+ * <pre>
+ * &#64;ChangeSet(order = "001", id = "backfillStatus", author = "testAuthor")
+ * public void backfillStatus(BatchMigrator migrator) {
+ *   migrator.collection("customers")
+ *     .setFilter(Filters.exists("status", false))
+ *     .run(doc -&gt; new UpdateOneModel&lt;&gt;(Filters.eq("_id", doc.get("_id")), Updates.set("status", "ACTIVE")));
+ * }
+ * </pre>
+ */
+public class BatchMigrator {
+
+	private final MongoDatabase mongoDatabase;
+	private final MongoDatabase adminDatabase;
+
+	/**
+	 * @param mongoDatabase database of the migrated collections
+	 */
+	public BatchMigrator(MongoDatabase mongoDatabase) {
+		this(mongoDatabase, null);
+	}
+
+	/**
+	 * @param mongoDatabase database of the migrated collections
+	 * @param adminDatabase admin database, used to sample the replication lag. May be null, then the lag isn't checked.
+	 */
+	public BatchMigrator(MongoDatabase mongoDatabase, MongoDatabase adminDatabase) {
+		this.mongoDatabase = mongoDatabase;
+		this.adminDatabase = adminDatabase;
+	}
+
+	/**
+	 * @param collectionName collection to migrate
+	 * @return migration of the collection, to be configured and run
+	 */
+	public BatchMigration collection(String collectionName) {
+		return new BatchMigration(mongoDatabase.getCollection(collectionName), adminDatabase);
+	}
+
+}
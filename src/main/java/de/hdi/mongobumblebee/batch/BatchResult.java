@@ -0,0 +1,16 @@
+package de.hdi.mongobumblebee.batch;
+
+import lombok.Value;
+
+/**
+ * Result of a {@link BatchMigration}
+ */
+@Value
+public class BatchResult {
+
+	/** Number of documents read */
+	long documents;
+	/** Number of write operations sent to the database */
+	long writes;
+
+}
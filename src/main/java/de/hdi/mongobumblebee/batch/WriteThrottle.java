@@ -0,0 +1,140 @@
+package de.hdi.mongobumblebee.batch;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Slows down the writes of a {@link BatchMigration}, shared by all its ranges. Writes are limited to a maximum rate, and they pause
+ * while the secondaries of the replica set lag further behind the primary than allowed. The lag is sampled with
+ * {@code replSetGetStatus}; if the command is not available (no replica set, missing privileges), the lag is not checked.
+ */
+@Slf4j
+class WriteThrottle {
+
+	private static final String PRIMARY = "PRIMARY";
+	private static final String SECONDARY = "SECONDARY";
+
+	private final int maxWritesPerSecond;
+	private final Duration maxReplicationLag;
+	private final MongoDatabase adminDatabase;
+	private final long sampleIntervalNanos;
+	private final long pauseMillis;
+
+	private long nextWrite = System.nanoTime();
+	private long nextSample;
+	private Duration lastLag = Duration.ZERO;
+	private boolean lagUnavailable;
+
+	/**
+	 * @param maxWritesPerSecond maximum write rate, 0 for no limit
+	 * @param maxReplicationLag maximum lag of the secondaries, null if the lag isn't checked
+	 * @param adminDatabase admin database to sample the lag from, null if the lag isn't checked
+	 * @param sampleInterval minimum time between two samples of the lag
+	 * @param pause time waited before the lag is sampled again, while it is too high
+	 */
+	WriteThrottle(int maxWritesPerSecond, Duration maxReplicationLag, MongoDatabase adminDatabase, Duration sampleInterval, Duration pause) {
+		this.maxWritesPerSecond = maxWritesPerSecond;
+		this.maxReplicationLag = maxReplicationLag;
+		this.adminDatabase = adminDatabase;
+		this.sampleIntervalNanos = sampleInterval.toNanos();
+		this.pauseMillis = pause.toMillis();
+		this.lagUnavailable = maxReplicationLag == null || adminDatabase == null;
+		this.nextSample = System.nanoTime();
+	}
+
+	/**
+	 * Blocks until the writes may be sent
+	 *
+	 * @param writes number of write operations to send
+	 */
+	void acquire(int writes) {
+		awaitReplication();
+		if (maxWritesPerSecond > 0 && writes > 0) {
+			long wait;
+			synchronized (this) {
+				long now = System.nanoTime();
+				long start = Math.max(now, nextWrite);
+				nextWrite = start + writes * 1_000_000_000L / maxWritesPerSecond;
+				wait = start - now;
+			}
+			sleep(Duration.ofNanos(wait));
+		}
+	}
+
+	private void awaitReplication() {
+		if (maxReplicationLag == null) {
+			return;
+		}
+		for (Duration lag = sampleLag(false); lag.compareTo(maxReplicationLag) > 0; lag = sampleLag(true)) {
+			log.info("Secondaries are {} ms behind the primary, pausing writes for {} ms", lag.toMillis(), pauseMillis);
+			sleep(Duration.ofMillis(pauseMillis));
+		}
+	}
+
+	/**
+	 * @param force sample even if the last sample is younger than the sample interval
+	 * @return current lag, zero if the lag isn't checked
+	 */
+	private synchronized Duration sampleLag(boolean force) {
+		if (lagUnavailable) {
+			return Duration.ZERO;
+		}
+		long now = System.nanoTime();
+		if (force || now - nextSample >= 0) {
+			try {
+				lastLag = replicationLag(adminDatabase.runCommand(new Document("replSetGetStatus", 1)));
+			} catch (MongoException e) {
+				log.warn("Replication lag can't be sampled, it is not checked: {}", e.getMessage());
+				lagUnavailable = true;
+				lastLag = Duration.ZERO;
+			}
+			nextSample = now + sampleIntervalNanos;
+		}
+		return lastLag;
+	}
+
+	/**
+	 * @param status result of {@code replSetGetStatus}
+	 * @return how far the slowest secondary is behind the primary
+	 */
+	static Duration replicationLag(Document status) {
+		Date primary = null;
+		Date slowestSecondary = null;
+		for (Document member : status.getList("members", Document.class, List.of())) {
+			Date optime = member.getDate("optimeDate");
+			if (optime == null) {
+				continue;
+			}
+			if (PRIMARY.equals(member.getString("stateStr"))) {
+				primary = optime;
+			} else if (SECONDARY.equals(member.getString("stateStr")) && (slowestSecondary == null || optime.before(slowestSecondary))) {
+				slowestSecondary = optime;
+			}
+		}
+		if (primary == null || slowestSecondary == null || !slowestSecondary.before(primary)) {
+			return Duration.ZERO;
+		}
+		return Duration.ofMillis(primary.getTime() - slowestSecondary.getTime());
+	}
+
+	private static void sleep(Duration duration) {
+		if (duration.isZero() || duration.isNegative()) {
+			return;
+		}
+		try {
+			Thread.sleep(duration);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while throttling writes", e);
+		}
+	}
+
+}
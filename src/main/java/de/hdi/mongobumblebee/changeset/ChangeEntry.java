@@ -1,10 +1,10 @@
 package de.hdi.mongobumblebee.changeset;
 
 import java.util.Date;
+import java.util.List;
 
 import org.bson.Document;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,7 +15,6 @@ import lombok.Setter;
  * @author lstolowski
  * @since 27/07/2014
  */
-@AllArgsConstructor
 @Getter
 public class ChangeEntry {
 	
@@ -25,6 +24,25 @@ public class ChangeEntry {
 	public static final String KEY_CHANGELOGCLASS = "changeLogClass";
 	public static final String KEY_CHANGESETMETHOD = "changeSetMethod";
 	public static final String KEY_RETURNVALUE = "returnValue";
+	public static final String KEY_OUTCOME = "outcome";
+	public static final String KEY_CHECKPOINT = "checkpoint";
+	public static final String KEY_STARTED_AT = "startedAt";
+	public static final String KEY_FINISHED_AT = "finishedAt";
+	public static final String KEY_DURATION = "durationMillis";
+	public static final String KEY_HOST = "host";
+	public static final String KEY_LOCK_OWNER = "lockOwner";
+	public static final String KEY_LOCK_ID = "lockId";
+	public static final String KEY_LOCK_TOKEN = "lockToken";
+
+	/** Outcome of a completely executed changeset. Entries written before outcomes were recorded have no outcome and are applied as well. */
+	public static final String OUTCOME_SUCCESS = "SUCCESS";
+	/** Outcome of a changeset which has saved a checkpoint but not finished yet */
+	public static final String OUTCOME_PARTIAL = "PARTIAL";
+	/** Outcome of a changeset which has thrown an exception, it is executed again by the next run */
+	public static final String OUTCOME_FAILED = "FAILED";
+
+	/** Maximum length of the serialized return value, longer values are truncated */
+	public static final int MAX_RETURN_VALUE_LENGTH = 1024;
 
 	private String changeId;
 	private String author;
@@ -33,6 +51,77 @@ public class ChangeEntry {
 	private String changeSetMethodName;
 	@Setter
 	private Object result;
+	/** Last checkpoint of a partially executed changeset, null if there is none */
+	@Setter
+	private Document checkpoint;
+	/** Start of the execution, null if the changeset has not been executed by this run */
+	private Date startedAt;
+	private Date finishedAt;
+	/** Host the changeset has been executed on */
+	private String host;
+	/** Owner of the process lock while the changeset has been executed */
+	private String lockOwner;
+	/** Fencing token of the process lock while the changeset has been executed, null if no lock has been held */
+	private Long lockToken;
+	/** Lock the fencing token has been taken from, tokens of different locks are not comparable */
+	private String lockId;
+	/** Outcome of the execution, null until the changeset has finished */
+	private String outcome;
+
+	public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName, Object result) {
+		this.changeId = changeId;
+		this.author = author;
+		this.timestamp = timestamp;
+		this.changeLogClass = changeLogClass;
+		this.changeSetMethodName = changeSetMethodName;
+		this.result = result;
+	}
+
+	/**
+	 * Records the start of the execution of the changeset
+	 *
+	 * @param host host executing the changeset
+	 * @param lockOwner owner of the process lock
+	 * @param lockId identity of the process lock, see {@link #KEY_LOCK_ID}
+	 * @param lockToken fencing token of the process lock, null if no lock is held
+	 */
+	public void started(String host, String lockOwner, String lockId, Long lockToken) {
+		this.startedAt = new Date();
+		this.finishedAt = null;
+		this.host = host;
+		this.lockOwner = lockOwner;
+		this.lockId = lockId;
+		this.lockToken = lockToken;
+		this.outcome = null;
+	}
+
+	/**
+	 * Records the end of the execution of the changeset
+	 *
+	 * @param outcome {@link #OUTCOME_SUCCESS} or {@link #OUTCOME_FAILED}
+	 */
+	public void finished(String outcome) {
+		this.finishedAt = new Date();
+		this.outcome = outcome;
+	}
+
+	/**
+	 * @return duration of the execution in milliseconds, null if the changeset has not finished
+	 */
+	public Long getDurationMillis() {
+		return startedAt == null || finishedAt == null ? null : finishedAt.getTime() - startedAt.getTime();
+	}
+
+	/**
+	 * @return return value of the changeset as string, truncated to {@value #MAX_RETURN_VALUE_LENGTH} characters, null if there is none
+	 */
+	public String getSerializedResult() {
+		if (result == null) {
+			return null;
+		}
+		String serialized = result instanceof Document document ? document.toJson() : String.valueOf(result);
+		return serialized.length() > MAX_RETURN_VALUE_LENGTH ? serialized.substring(0, MAX_RETURN_VALUE_LENGTH) + "..." : serialized;
+	}
 
 	public Document buildFullDBObject() {
 		Document entry = new Document();
@@ -42,17 +131,90 @@ public class ChangeEntry {
 			.append(KEY_AUTHOR, this.author)
 			.append(KEY_TIMESTAMP, this.timestamp)
 			.append(KEY_CHANGELOGCLASS, this.changeLogClass)
-			.append(KEY_CHANGESETMETHOD, this.changeSetMethodName);
+			.append(KEY_CHANGESETMETHOD, this.changeSetMethodName)
+			.append(KEY_OUTCOME, this.outcome == null ? OUTCOME_SUCCESS : this.outcome);
+
+		if (this.startedAt != null) {
+			entry
+				.append(KEY_STARTED_AT, this.startedAt)
+				.append(KEY_FINISHED_AT, this.finishedAt)
+				.append(KEY_DURATION, getDurationMillis())
+				.append(KEY_HOST, this.host)
+				.append(KEY_LOCK_OWNER, this.lockOwner);
+			if (this.lockToken != null) {
+				entry
+					.append(KEY_LOCK_ID, this.lockId)
+					.append(KEY_LOCK_TOKEN, this.lockToken);
+			}
+		}
+		String serializedResult = getSerializedResult();
+		if (serializedResult != null) {
+			entry.append(KEY_RETURNVALUE, serializedResult);
+		}
 
 		return entry;
 	}
 
+	public Document buildPartialDBObject() {
+		return buildFullDBObject()
+				.append(KEY_OUTCOME, OUTCOME_PARTIAL)
+				.append(KEY_CHECKPOINT, this.checkpoint);
+	}
+
+	/**
+	 * @return entry of a failed changeset, the checkpoint of an earlier run is kept so the next run resumes from it
+	 */
+	public Document buildFailedDBObject() {
+		Document entry = buildFullDBObject().append(KEY_OUTCOME, OUTCOME_FAILED);
+		if (this.checkpoint != null) {
+			entry.append(KEY_CHECKPOINT, this.checkpoint);
+		}
+		return entry;
+	}
+
 	public Document buildSearchQueryDBObject() {
 		return new Document()
 				.append(KEY_CHANGEID, this.changeId)
 				.append(KEY_AUTHOR, this.author);
 	}
 
+	/**
+	 * Query of the entry written by an upsert. It doesn't match an entry written under the same lock with a greater fencing token,
+	 * so the upsert fails with a duplicate key error instead of overwriting the entry of a process which has taken the lock over.
+	 * Entries written under another lock, e.g. before the lock scope has been changed, are always matched.
+	 *
+	 * @return query of the entry, conditional on the fencing token if a lock is held
+	 */
+	public Document buildFencedSearchQueryDBObject() {
+		Document query = buildSearchQueryDBObject();
+		if (this.lockToken != null) {
+			query.append("$or", List.of(
+					new Document(KEY_LOCK_ID, new Document("$ne", this.lockId)),
+					new Document(KEY_LOCK_TOKEN, new Document("$exists", false)),
+					new Document(KEY_LOCK_TOKEN, new Document("$lte", this.lockToken))));
+		}
+		return query;
+	}
+
+	/**
+	 * @param entry document of the changelog collection
+	 * @return change entry with the recorded execution, the return value is the serialized one
+	 */
+	public static ChangeEntry fromDocument(Document entry) {
+		ChangeEntry changeEntry = new ChangeEntry(entry.getString(KEY_CHANGEID), entry.getString(KEY_AUTHOR), entry.getDate(KEY_TIMESTAMP),
+				entry.getString(KEY_CHANGELOGCLASS), entry.getString(KEY_CHANGESETMETHOD), entry.get(KEY_RETURNVALUE));
+		changeEntry.checkpoint = entry.get(KEY_CHECKPOINT, Document.class);
+		changeEntry.startedAt = entry.getDate(KEY_STARTED_AT);
+		changeEntry.finishedAt = entry.getDate(KEY_FINISHED_AT);
+		changeEntry.host = entry.getString(KEY_HOST);
+		changeEntry.lockOwner = entry.getString(KEY_LOCK_OWNER);
+		changeEntry.lockId = entry.getString(KEY_LOCK_ID);
+		Number lockToken = entry.get(KEY_LOCK_TOKEN, Number.class);
+		changeEntry.lockToken = lockToken == null ? null : lockToken.longValue();
+		changeEntry.outcome = entry.getString(KEY_OUTCOME);
+		return changeEntry;
+	}
+
 	@Override
 	public String toString() {
 		return "[ChangeSet: id=" + this.changeId +
@@ -21,4 +21,14 @@ public @interface ChangeLog {
 	 * @return order
 	 */
 	String order() default "";
+
+	/**
+	 * Changelogs of the same parallel group, which directly follow each other in the changelog order, may be executed concurrently.
+	 * Use it only for changelogs which are independent of each other, e.g. touch disjoint collections. Changelogs without
+	 * a parallel group are executed after all preceding changelogs have finished.
+	 * Optional (default is no group)
+	 * @return parallel group
+	 * @see de.hdi.mongobumblebee.MongoBumblebee#setChangeLogParallelism(int)
+	 */
+	String parallelGroup() default "";
 }
@@ -43,4 +43,14 @@ public @interface ChangeSet {
 	 */
 	public boolean runAlways() default false;
 
+	/**
+	 * Executes the change set in a transaction together with writing its changelog entry, so a failing change set leaves no
+	 * partial changes. The MongoTemplate and MongoDatabase passed to the change set are bound to the transaction, a ClientSession
+	 * parameter gets its session. Needs a replica set or sharded cluster, on a standalone server the change set is executed without
+	 * transaction. Transactional change sets can't take a BatchMigrator or ChangeSetCheckpoint and can't return DeclaredIndexes.
+	 * Optional (default is false)
+	 * @return execute in a transaction?
+	 */
+	public boolean transactional() default false;
+
 }
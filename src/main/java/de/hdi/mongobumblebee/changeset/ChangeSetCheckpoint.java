@@ -0,0 +1,81 @@
+package de.hdi.mongobumblebee.changeset;
+
+import org.bson.Document;
+
+/**
+ * Progress of a long running changeset, passed to changeset methods declaring a parameter of this type.
+ * A saved checkpoint is recorded in the changelog collection and the changeset stays pending until it returns.
+ * If the changeset is interrupted (e.g. the process dies), the next run passes the last checkpoint to the changeset again,
+ * so it can continue where it stopped.
+ * <pre>
+ * &#64;ChangeSet(order = "001", id = "backfill", author = "testAuthor")
+ * public void backfill(BatchMigrator migrator, ChangeSetCheckpoint checkpoint) {
+ *   migrator.collection("customers").setCheckpoint(checkpoint).run(...);
+ * }
+ * </pre>
+ */
+public class ChangeSetCheckpoint {
+
+	public static final String KEY_LAST_ID = "lastId";
+	public static final String KEY_PROCESSED = "processed";
+
+	/**
+	 * Persists checkpoints
+	 */
+	@FunctionalInterface
+	public interface Store {
+		void save(Document checkpoint);
+	}
+
+	private final boolean resumed;
+	private final Store store;
+	private Object lastId;
+	private long processed;
+
+	/**
+	 * @param previous checkpoint saved by an earlier run, null if there is none
+	 * @param store persistence of new checkpoints
+	 */
+	public ChangeSetCheckpoint(Document previous, Store store) {
+		this.resumed = previous != null;
+		this.store = store;
+		if (previous != null) {
+			this.lastId = previous.get(KEY_LAST_ID);
+			this.processed = previous.get(KEY_PROCESSED, Number.class) == null ? 0L : previous.get(KEY_PROCESSED, Number.class).longValue();
+		}
+	}
+
+	/**
+	 * @return true if the changeset has saved a checkpoint during an earlier, interrupted run
+	 */
+	public boolean isResumed() {
+		return resumed;
+	}
+
+	/**
+	 * @return id of the last processed document, null if nothing has been processed yet
+	 */
+	public Object getLastId() {
+		return lastId;
+	}
+
+	/**
+	 * @return number of processed documents
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+
+	/**
+	 * Saves the progress of the changeset
+	 *
+	 * @param lastId id of the last processed document
+	 * @param processed number of processed documents, including those of earlier runs
+	 */
+	public void save(Object lastId, long processed) {
+		store.save(new Document(KEY_LAST_ID, lastId).append(KEY_PROCESSED, processed));
+		this.lastId = lastId;
+		this.processed = processed;
+	}
+
+}
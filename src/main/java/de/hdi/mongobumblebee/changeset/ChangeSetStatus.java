@@ -0,0 +1,31 @@
+package de.hdi.mongobumblebee.changeset;
+
+/**
+ * State of a changeset in a migration plan
+ * @see PlannedChangeSet
+ */
+public enum ChangeSetStatus {
+
+	/**
+	 * Not applied yet, will be executed by the next migration
+	 */
+	NEW,
+
+	/**
+	 * Applied before, but will be executed again because it is marked as {@link ChangeSet#runAlways()}
+	 */
+	RUN_ALWAYS,
+
+	/**
+	 * Applied before, will be passed over
+	 */
+	APPLIED;
+
+	/**
+	 * @return true if the changeset will be executed by the next migration
+	 */
+	public boolean isPending() {
+		return this != APPLIED;
+	}
+
+}
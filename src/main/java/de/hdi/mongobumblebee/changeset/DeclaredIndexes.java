@@ -0,0 +1,78 @@
+package de.hdi.mongobumblebee.changeset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.IndexOptions;
+
+import lombok.Value;
+
+/**
+ * Indexes a changeset wants to exist. A changeset method returning an instance of this class doesn't create the indexes itself;
+ * MongoBumblebee compares them with the existing indexes of the collections and builds the missing ones. Indexes existing with
+ * the same keys and options are skipped, so the changeset may be declared with {@code runAlways = true}.
+ * <pre>
+ * &#64;ChangeSet(order = "001", id = "customerIndexes", author = "testAuthor", runAlways = true)
+ * public DeclaredIndexes customerIndexes() {
+ *   return new DeclaredIndexes()
+ *     .add("customers", Indexes.ascending("email"), new IndexOptions().unique(true))
+ *     .add("customers", Indexes.compoundIndex(Indexes.ascending("lastName"), Indexes.ascending("firstName")));
+ * }
+ * </pre>
+ */
+public class DeclaredIndexes {
+
+	/**
+	 * Index of a collection
+	 */
+	@Value
+	public static class DeclaredIndex {
+		String collectionName;
+		Bson keys;
+		IndexOptions options;
+	}
+
+	private final List<DeclaredIndex> indexes = new ArrayList<>();
+	private boolean buildTogether = true;
+
+	/**
+	 * @param collectionName collection of the index
+	 * @param keys keys of the index, see {@link com.mongodb.client.model.Indexes}
+	 * @return DeclaredIndexes object for fluent interface
+	 */
+	public DeclaredIndexes add(String collectionName, Bson keys) {
+		return add(collectionName, keys, new IndexOptions());
+	}
+
+	/**
+	 * @param collectionName collection of the index
+	 * @param keys keys of the index, see {@link com.mongodb.client.model.Indexes}
+	 * @param options options of the index, compared are name, unique, sparse, expireAfter and partialFilterExpression
+	 * @return DeclaredIndexes object for fluent interface
+	 */
+	public DeclaredIndexes add(String collectionName, Bson keys, IndexOptions options) {
+		indexes.add(new DeclaredIndex(collectionName, keys, options));
+		return this;
+	}
+
+	/**
+	 * @param buildTogether true (default) to build the missing indexes of a collection with one {@code createIndexes} command,
+	 *            which scans the collection once. False builds them one after another.
+	 * @return DeclaredIndexes object for fluent interface
+	 */
+	public DeclaredIndexes setBuildTogether(boolean buildTogether) {
+		this.buildTogether = buildTogether;
+		return this;
+	}
+
+	public List<DeclaredIndex> getIndexes() {
+		return List.copyOf(indexes);
+	}
+
+	public boolean isBuildTogether() {
+		return buildTogether;
+	}
+
+}
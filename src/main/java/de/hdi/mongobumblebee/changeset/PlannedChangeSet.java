@@ -0,0 +1,33 @@
+package de.hdi.mongobumblebee.changeset;
+
+import lombok.Value;
+
+/**
+ * Changeset of a migration plan, as returned by {@link de.hdi.mongobumblebee.MongoBumblebee#plan()}
+ */
+@Value
+public class PlannedChangeSet {
+
+	String changeId;
+	String author;
+	String changeLogClass;
+	String changeSetMethodName;
+	ChangeSetStatus status;
+
+	/**
+	 * @return true if the changeset will be executed by the next migration
+	 */
+	public boolean isPending() {
+		return status.isPending();
+	}
+
+	@Override
+	public String toString() {
+		return "[ChangeSet: id=" + this.changeId +
+				", author=" + this.author +
+				", changeLogClass=" + this.changeLogClass +
+				", changeSetMethod=" + this.changeSetMethodName +
+				", status=" + this.status + "]";
+	}
+
+}
@@ -2,19 +2,37 @@ package de.hdi.mongobumblebee.dao;
 
 import static org.springframework.util.StringUtils.hasText;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
 
+import de.hdi.mongobumblebee.MongoBumblebee;
 import de.hdi.mongobumblebee.changeset.ChangeEntry;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeConnectionException;
@@ -29,11 +47,18 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class ChangeEntryDao {
+
+	/** Minimum duration (in seconds) of the lease of the process lock */
+	private static final long MIN_LEASE_SECONDS = 60L;
 	
 	@Getter
 	private MongoDatabase mongoDatabase;
 	private MongoClient mongoClient;
+	/** Template used for the index setup, created on connect if not set */
+	@Setter
+	private MongoTemplate mongoTemplate;
 	private ChangeEntryIndexDao indexDao;
+	@Getter
 	private String changelogCollectionName;
 	@Getter
 	@Setter
@@ -45,13 +70,38 @@ public class ChangeEntryDao {
 	@Setter
 	private long changeLogLockPollRate;
 	private boolean throwExceptionIfCannotObtainLock;
+	/** Wait for the release of the lock with a change stream instead of polling */
+	@Getter
+	@Setter
+	private boolean watchLockRelease;
+	private boolean changeStreamUnavailable;
+	/** Interval (in seconds) in which the lock is refreshed while it is held */
+	@Getter
+	@Setter
+	private long changeLogLockHeartbeatInterval;
+	private LockHeartbeat lockHeartbeat;
+	@Getter
+	@Setter
+	private boolean preloadChangeLog;
+	/** changeId/author keys of all applied changesets, null if the changelog has not been preloaded */
+	private Set<String> appliedChangeEntries;
+	/** Number of changelog entries written with a single bulk write, 1 or less writes every entry immediately */
+	@Getter
+	@Setter
+	private int changeLogBatchSize;
+	/** Changelog entries of executed changesets not written yet */
+	private List<WriteModel<Document>> pendingChangeLogWrites;
+	/** Whether the server supports transactions, null until checked */
+	private Boolean transactionSupported;
 
 	private LockDao lockDao;
+	private MetadataDao metadataDao;
 
 	public ChangeEntryDao(String changelogCollectionName, String lockCollectionName, boolean waitForLock, long changeLogLockWaitTime,
 			long changeLogLockPollRate, boolean throwExceptionIfCannotObtainLock) {
 		this.indexDao = new ChangeEntryIndexDao();
 		this.lockDao = new LockDao(lockCollectionName);
+		this.metadataDao = new MetadataDao(MongoBumblebee.MB_PREFIX + "metadata");
 		this.changelogCollectionName = changelogCollectionName;
 		this.waitForLock = waitForLock;
 		this.changeLogLockWaitTime = changeLogLockWaitTime;
@@ -60,6 +110,22 @@ public class ChangeEntryDao {
 	}
 
 	public MongoDatabase connectMongoDb(MongoClient mongoClient, String dbName) throws MongoBumblebeeConfigurationException {
+		connectMongoDbReadOnly(mongoClient, dbName);
+		ensureChangeLogCollectionIndex(mongoTemplate, changelogCollectionName);
+		initializeLock(mongoTemplate);
+		return mongoDatabase;
+	}
+
+	/**
+	 * Connects like {@link #connectMongoDb(MongoClient, String)}, but without creating the indexes of the changelog collection and
+	 * without initializing the process lock, so nothing is written to the database
+	 *
+	 * @param mongoClient database connection client
+	 * @param dbName database name
+	 * @return connected database
+	 * @throws MongoBumblebeeConfigurationException if the database name is not set
+	 */
+	public MongoDatabase connectMongoDbReadOnly(MongoClient mongoClient, String dbName) throws MongoBumblebeeConfigurationException {
 		if (!hasText(dbName)) {
 			throw new MongoBumblebeeConfigurationException("DB name is not set. Should be defined in MongoDB URI or via setter");
 		} 
@@ -67,12 +133,19 @@ public class ChangeEntryDao {
 		this.mongoClient = mongoClient;
 
 		mongoDatabase = mongoClient.getDatabase(dbName);
+		transactionSupported = null;
 		
-		MongoTemplate template = new MongoTemplate(mongoClient, dbName);
+		if (mongoTemplate == null) {
+			mongoTemplate = new MongoTemplate(mongoClient, dbName);
+		}
+		return mongoDatabase;
+	}
 
-		ensureChangeLogCollectionIndex(template, changelogCollectionName);
-		initializeLock(template);
-		return mongoDatabase;		
+	/**
+	 * @return admin database of the connected client, null if not connected
+	 */
+	public MongoDatabase getAdminDatabase() {
+		return mongoClient == null ? null : mongoClient.getDatabase("admin");
 	}
 
 	/**
@@ -84,45 +157,107 @@ public class ChangeEntryDao {
 	 */
 	public boolean acquireProcessLock() throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
 		verifyDbConnection();
+		// a lock which hasn't been refreshed for the lock wait time is starved and may be taken over
+		lockDao.setLeaseTime(Duration.ofSeconds(Math.max(changeLogLockWaitTime * 60, Math.max(2 * changeLogLockHeartbeatInterval, MIN_LEASE_SECONDS))));
 		boolean acquired = lockDao.acquireLock(getMongoDatabase());
 
 		if (!acquired && waitForLock) {
 			long timeToGiveUp = new Date().getTime() + (changeLogLockWaitTime * 1000 * 60);
+			int attempt = 0;
 			while (!acquired && new Date().getTime() < timeToGiveUp) {
 				acquired = lockDao.acquireLock(getMongoDatabase());
 				if (!acquired) {
 					log.info("Waiting for process lock....");
-					try {
-						Thread.sleep(changeLogLockPollRate * 1000);
-					} catch (InterruptedException e) {
-						// nothing
+					if (!waitForLockRelease(attempt++, timeToGiveUp)) {
+						log.info("Waiting for process lock has been interrupted.");
+						break;
 					}
 				}
 			}
 		}
 		
-		LocalDateTime lastAccess = lockDao.getLastAccess(getMongoDatabase());
-		if (!acquired && lastAccess != null && lastAccess.plusMinutes(changeLogLockWaitTime).isBefore(LocalDateTime.now())) {
-			log.info("Process lock released because it wasn't updated for " + changeLogLockWaitTime + " minutes.");
-			lockDao.releaseLock(getMongoDatabase());
-			acquired = lockDao.acquireLock(getMongoDatabase());
-		}
-
 		if (!acquired && throwExceptionIfCannotObtainLock) {
 			log.info("MongoBumblebee did not acquire process lock. Throwing exception.");
 			throw new MongoBumblebeeLockException("Could not acquire process lock");
 		}
 
+		if (acquired) {
+			startLockHeartbeat();
+		}
+
 		return acquired;
 	}
+
+	/**
+	 * Waits before the next attempt to acquire the lock. If watching the lock is enabled, the waiting ends as soon as the lock is
+	 * released. If change streams are not available an exponential backoff with jitter is used instead. Otherwise the lock is polled
+	 * in the configured poll rate.
+	 *
+	 * @return false if the thread has been interrupted, its interrupt status is kept
+	 */
+	private boolean waitForLockRelease(int attempt, long timeToGiveUp) {
+		long maxWait = Math.max(0L, Math.min(changeLogLockPollRate * 1000, timeToGiveUp - new Date().getTime()));
+		if (watchLockRelease && !changeStreamUnavailable) {
+			try {
+				lockDao.awaitLockRelease(getMongoDatabase(), maxWait);
+				return !Thread.currentThread().isInterrupted();
+			} catch (MongoCommandException e) {
+				log.info("Lock release can't be watched, falling back to exponential backoff: {}", e.getErrorMessage());
+				changeStreamUnavailable = true;
+			}
+		}
+		long waitTime = watchLockRelease ? backoff(attempt, maxWait) : maxWait;
+		try {
+			Thread.sleep(waitTime);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Exponential backoff (starting at 100 ms) with equal jitter, capped by the maximum waiting time
+	 */
+	private static long backoff(int attempt, long maxWait) {
+		long backoff = Math.min(maxWait, 100L << Math.min(attempt, 20));
+		return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+	}
+
+	private void startLockHeartbeat() {
+		stopLockHeartbeat();
+		if (changeLogLockHeartbeatInterval > 0) {
+			lockHeartbeat = new LockHeartbeat(this::updateLock, changeLogLockHeartbeatInterval);
+		}
+	}
+
+	private void stopLockHeartbeat() {
+		if (lockHeartbeat != null) {
+			lockHeartbeat.stop();
+			lockHeartbeat = null;
+		}
+	}
 	
 	public void updateLock() {
 		lockDao.updateLock(getMongoDatabase());
 	}
 
-	public void releaseProcessLock() throws MongoBumblebeeConnectionException {
+	/**
+	 * Writes all buffered changelog entries and releases the process lock afterwards. The lock is released even if
+	 * the changelog entries can't be written.
+	 *
+	 * @throws MongoBumblebeeConnectionException exception
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public void releaseProcessLock() throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
 		verifyDbConnection();
-		lockDao.releaseLock(getMongoDatabase());
+		stopLockHeartbeat();
+		try {
+			flushChangeLog();
+		} finally {
+			appliedChangeEntries = null;
+			lockDao.releaseLock(getMongoDatabase());
+		}
 	}
 
 	public boolean isProccessLockHeld() throws MongoBumblebeeConnectionException {
@@ -130,29 +265,306 @@ public class ChangeEntryDao {
 		return lockDao.isLockHeld(getMongoDatabase());
 	}
 
+	/**
+	 * Reads the changeId and author of all entries of the changelog collection with a single query, if preloading is enabled.
+	 * Afterwards {@link #isNewChange(ChangeEntry)} and {@link #save(ChangeEntry)} are answered from memory. Must only be called
+	 * while the process lock is held, otherwise entries written by other processes would be missed.
+	 *
+	 * @throws MongoBumblebeeConnectionException exception
+	 */
+	public void loadChangeLog() throws MongoBumblebeeConnectionException {
+		if (!preloadChangeLog) {
+			return;
+		}
+
+		Set<String> applied = fetchAppliedChangeEntries();
+		log.debug("Preloaded {} changelog entries", applied.size());
+		appliedChangeEntries = applied;
+	}
+
+	/**
+	 * Reads the ids and authors of all applied changesets with one query. Partially executed and failed changesets are not applied.
+	 *
+	 * @return keys of the applied changesets, see {@link #changeLogKey(String, String)}
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 */
+	public Set<String> fetchAppliedChangeEntries() throws MongoBumblebeeConnectionException {
+		verifyDbConnection();
+
+		Set<String> applied = ConcurrentHashMap.newKeySet();
+		MongoCollection<Document> changeLogCollection = getMongoDatabase().getCollection(changelogCollectionName);
+		for (Document entry : changeLogCollection.find(Filters.nin(ChangeEntry.KEY_OUTCOME, ChangeEntry.OUTCOME_PARTIAL, ChangeEntry.OUTCOME_FAILED)).projection(Projections.fields(Projections.include(ChangeEntry.KEY_CHANGEID, ChangeEntry.KEY_AUTHOR), Projections.excludeId()))) {
+			applied.add(changeLogKey(entry.getString(ChangeEntry.KEY_CHANGEID), entry.getString(ChangeEntry.KEY_AUTHOR)));
+		}
+		return applied;
+	}
+
 	public boolean isNewChange(ChangeEntry changeEntry) throws MongoBumblebeeConnectionException {
 		verifyDbConnection();
 
+		if (appliedChangeEntries != null) {
+			return !appliedChangeEntries.contains(changeLogKey(changeEntry.getChangeId(), changeEntry.getAuthor()));
+		}
+
 		MongoCollection<Document> changeLogCollection = getMongoDatabase().getCollection(changelogCollectionName);
 		Document entry = changeLogCollection.find(changeEntry.buildSearchQueryDBObject()).first();
 
-		return entry == null;
+		return entry == null || isPending(entry);
+	}
+
+	private static boolean isPending(Document entry) {
+		String outcome = entry.getString(ChangeEntry.KEY_OUTCOME);
+		return ChangeEntry.OUTCOME_PARTIAL.equals(outcome) || ChangeEntry.OUTCOME_FAILED.equals(outcome);
 	}
 
-	public void save(ChangeEntry changeEntry) throws MongoBumblebeeConnectionException {
+	/**
+	 * Reads the checkpoint a partially executed changeset has saved during an earlier run and keeps it in the change entry
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @return last checkpoint, null if the changeset has not saved one
+	 * @throws MongoBumblebeeConnectionException exception
+	 */
+	public Document findCheckpoint(ChangeEntry changeEntry) throws MongoBumblebeeConnectionException {
 		verifyDbConnection();
 
 		MongoCollection<Document> changeLogCollection = getMongoDatabase().getCollection(changelogCollectionName);
+		Document entry = changeLogCollection.find(Filters.and(changeEntry.buildSearchQueryDBObject(), Filters.in(ChangeEntry.KEY_OUTCOME, ChangeEntry.OUTCOME_PARTIAL, ChangeEntry.OUTCOME_FAILED))).first();
+		Document checkpoint = entry == null ? null : entry.get(ChangeEntry.KEY_CHECKPOINT, Document.class);
+		changeEntry.setCheckpoint(checkpoint);
+		return checkpoint;
+	}
+
+	/**
+	 * Records the progress of a running changeset. The changeset stays pending until it is saved by {@link #save(ChangeEntry)},
+	 * so a changeset which doesn't finish gets its checkpoint back by the next run. Checkpoints are written immediately,
+	 * independent of the changelog batch size.
+	 *
+	 * @param changeEntry entry of the running changeset
+	 * @param checkpoint progress of the changeset
+	 * @throws MongoBumblebeeConnectionException exception
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public void saveCheckpoint(ChangeEntry changeEntry, Document checkpoint) throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		verifyDbConnection();
+
+		changeEntry.setCheckpoint(checkpoint);
+		writeChangeLog(List.of(upsert(changeEntry, changeEntry.buildPartialDBObject())));
+	}
+
+	/**
+	 * Records an executed changeset in the changelog collection.
+	 * <p>
+	 * If the changelog batch size is greater than 1 the entry is only buffered and written together with other entries by a single
+	 * unordered bulk write as soon as the batch is full, or at the latest by {@link #releaseProcessLock()}. Entries are only buffered
+	 * after their changeset has been executed, so a crash can never record a changeset which did not run. But changesets executed
+	 * since the last flush are not recorded and will be executed again by the next run.
+	 *
+	 * @param changeEntry entry of the executed changeset
+	 * @throws MongoBumblebeeConnectionException exception
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public void save(ChangeEntry changeEntry) throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		verifyDbConnection();
+
+		if (changeLogBatchSize > 1) {
+			bufferChangeLogWrite(changeEntry);
+			return;
+		}
 
-		if (isNewChange(changeEntry)) {
-			changeLogCollection.insertOne(changeEntry.buildFullDBObject());
-		} else {
-			Bson filter = Filters.and(Filters.eq(ChangeEntry.KEY_CHANGEID, changeEntry.getChangeId()), Filters.eq(ChangeEntry.KEY_AUTHOR, changeEntry.getAuthor()));
-			Document document = changeEntry.buildFullDBObject();
-			changeLogCollection.findOneAndReplace(filter, document);
+		// replaces a partial or failed entry of an earlier run or the entry of a runAlways changeset
+		boolean isNew = isNewChange(changeEntry);
+		writeChangeLog(List.of(upsert(changeEntry, changeEntry.buildFullDBObject())));
+		if (isNew && appliedChangeEntries != null) {
+			appliedChangeEntries.add(changeLogKey(changeEntry.getChangeId(), changeEntry.getAuthor()));
 		}
 	}
 
+	/**
+	 * Records an executed changeset in the transaction of the given session, so the entry is committed together with the changes
+	 * of the changeset. The entry is written immediately, independent of the changelog batch size. The process lock is confirmed in
+	 * the same transaction, see {@link LockDao#confirmLock(MongoDatabase, ClientSession)}.
+	 *
+	 * @param changeEntry entry of the executed changeset
+	 * @param session session of the running transaction
+	 * @throws MongoBumblebeeConnectionException exception
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public void save(ChangeEntry changeEntry, ClientSession session) throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		verifyDbConnection();
+		if (lockDao.getToken() != null && !lockDao.confirmLock(getMongoDatabase(), session)) {
+			throw lockTakenOver();
+		}
+
+		// replaces the entry of a runAlways changeset or a partial entry
+		getMongoDatabase().getCollection(changelogCollectionName)
+				.replaceOne(session, changeEntry.buildFencedSearchQueryDBObject(), changeEntry.buildFullDBObject(), new ReplaceOptions().upsert(true));
+		if (appliedChangeEntries != null) {
+			appliedChangeEntries.add(changeLogKey(changeEntry.getChangeId(), changeEntry.getAuthor()));
+		}
+	}
+
+	/**
+	 * Records a changeset which has thrown an exception. The entry is written immediately, a checkpoint of the changeset is kept.
+	 * Failed changesets are not applied and executed again by the next run.
+	 *
+	 * @param changeEntry entry of the failed changeset
+	 * @throws MongoBumblebeeConnectionException exception
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public void saveFailure(ChangeEntry changeEntry) throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		verifyDbConnection();
+
+		writeChangeLog(List.of(upsert(changeEntry, changeEntry.buildFailedDBObject())));
+	}
+
+	/**
+	 * Reads the recorded executions of the changelog collection, latest first
+	 *
+	 * @param since earliest timestamp of the returned entries, null for all entries
+	 * @param limit maximum number of returned entries, 0 for no limit
+	 * @return entries with their recorded execution, see {@link ChangeEntry#fromDocument(Document)}
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 */
+	public List<ChangeEntry> findChangeLogHistory(Date since, int limit) throws MongoBumblebeeConnectionException {
+		return findChangeEntries(since == null ? Filters.empty() : Filters.gte(ChangeEntry.KEY_TIMESTAMP, since), Sorts.descending(ChangeEntry.KEY_TIMESTAMP), limit);
+	}
+
+	/**
+	 * Reads the changesets with the longest execution. Entries written before the duration has been recorded are ignored.
+	 *
+	 * @param since earliest timestamp of the returned entries, null for all entries
+	 * @param limit maximum number of returned entries, 0 for no limit
+	 * @return entries with their recorded execution, slowest first
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 */
+	public List<ChangeEntry> findSlowestChangeSets(Date since, int limit) throws MongoBumblebeeConnectionException {
+		Bson executed = Filters.exists(ChangeEntry.KEY_DURATION);
+		return findChangeEntries(since == null ? executed : Filters.and(Filters.gte(ChangeEntry.KEY_TIMESTAMP, since), executed), Sorts.descending(ChangeEntry.KEY_DURATION), limit);
+	}
+
+	private List<ChangeEntry> findChangeEntries(Bson filter, Bson sort, int limit) throws MongoBumblebeeConnectionException {
+		verifyDbConnection();
+
+		List<ChangeEntry> entries = new ArrayList<>();
+		for (Document entry : getMongoDatabase().getCollection(changelogCollectionName).find(filter).sort(sort).limit(limit)) {
+			entries.add(ChangeEntry.fromDocument(entry));
+		}
+		return entries;
+	}
+
+	/**
+	 * @return owner of the process lock, recorded with every executed changeset
+	 */
+	public String getLockOwner() {
+		return lockDao.getOwner();
+	}
+
+	/**
+	 * @return identity of the process lock, recorded with every executed changeset
+	 */
+	public String getLockId() {
+		return lockDao.getLockId();
+	}
+
+	/**
+	 * @return fencing token of the process lock held by this process, recorded with every executed changeset, null if no lock is held
+	 */
+	public Long getLockToken() {
+		return lockDao.getToken();
+	}
+
+	/**
+	 * @return new session of the connected client, to be closed by the caller
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 */
+	public ClientSession startSession() throws MongoBumblebeeConnectionException {
+		verifyDbConnection();
+		return mongoClient.startSession();
+	}
+
+	/**
+	 * @return true if the database is a replica set or sharded cluster, which supports transactions
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 */
+	public boolean isTransactionSupported() throws MongoBumblebeeConnectionException {
+		verifyDbConnection();
+		if (transactionSupported == null) {
+			Document hello = getMongoDatabase().runCommand(new Document("hello", 1));
+			transactionSupported = hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+		}
+		return transactionSupported;
+	}
+
+	/**
+	 * Writes all buffered changelog entries with a single unordered bulk write
+	 *
+	 * @throws MongoBumblebeeConnectionException exception
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public synchronized void flushChangeLog() throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		if (pendingChangeLogWrites == null || pendingChangeLogWrites.isEmpty()) {
+			return;
+		}
+		verifyDbConnection();
+
+		List<WriteModel<Document>> writes = pendingChangeLogWrites;
+		pendingChangeLogWrites = new ArrayList<>();
+		writeChangeLog(writes);
+		log.debug("{} changelog entries written", writes.size());
+	}
+
+	private synchronized void bufferChangeLogWrite(ChangeEntry changeEntry) throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		if (pendingChangeLogWrites == null) {
+			pendingChangeLogWrites = new ArrayList<>();
+		}
+
+		// replaces a partial or failed entry of an earlier run or the entry of a runAlways changeset
+		if (isNewChange(changeEntry) && appliedChangeEntries != null) {
+			appliedChangeEntries.add(changeLogKey(changeEntry.getChangeId(), changeEntry.getAuthor()));
+		}
+		pendingChangeLogWrites.add(upsert(changeEntry, changeEntry.buildFullDBObject()));
+
+		if (pendingChangeLogWrites.size() >= changeLogBatchSize) {
+			flushChangeLog();
+		}
+	}
+
+	/**
+	 * @return key identifying a changeset in the result of {@link #fetchAppliedChangeEntries()}
+	 */
+	public static String changeLogKey(String changeId, String author) {
+		return changeId + '\u0000' + author;
+	}
+
+	private static WriteModel<Document> upsert(ChangeEntry changeEntry, Document entry) {
+		return new ReplaceOneModel<>(changeEntry.buildFencedSearchQueryDBObject(), entry, new ReplaceOptions().upsert(true));
+	}
+
+	/**
+	 * Writes changelog entries fenced by the process lock. The lock is checked once before the entries are written, and every entry
+	 * is written conditional on the fencing token, see {@link ChangeEntry#buildFencedSearchQueryDBObject()}, so a process which has
+	 * lost its lock, e.g. after a long GC pause, never overwrites an entry of the process which has taken the lock over.
+	 */
+	private void writeChangeLog(List<WriteModel<Document>> writes) throws MongoBumblebeeLockException {
+		if (lockDao.getToken() != null && !lockDao.isLockOwned(getMongoDatabase())) {
+			throw lockTakenOver();
+		}
+		try {
+			getMongoDatabase().getCollection(changelogCollectionName).bulkWrite(writes, new BulkWriteOptions().ordered(false));
+		} catch (MongoBulkWriteException e) {
+			// the fenced query didn't match the entry of a process with a greater fencing token of the same lock
+			if (e.getWriteErrors().stream().anyMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY)) {
+				throw new MongoBumblebeeLockException("Changelog has been written by a process with a greater fencing token than " + lockDao.getToken()
+						+ " of lock " + lockDao.getLockId());
+			}
+			throw e;
+		}
+	}
+
+	private MongoBumblebeeLockException lockTakenOver() {
+		return new MongoBumblebeeLockException("Process lock with fencing token " + lockDao.getToken() + " has been taken over by another process, changelog not written");
+	}
+
 	private void verifyDbConnection() throws MongoBumblebeeConnectionException {
 		if (getMongoDatabase() == null) {
 			throw new MongoBumblebeeConnectionException("Database is not connected. MongoBumblebee has thrown an unexpected error",
@@ -160,8 +572,34 @@ public class ChangeEntryDao {
 		}
 	}
 
+	/**
+	 * @param fingerprint fingerprint of the current migration plan
+	 * @return true if a migration plan with the same fingerprint has been applied completely before
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 */
+	public boolean isFingerprintUpToDate(String fingerprint) throws MongoBumblebeeConnectionException {
+		verifyDbConnection();
+		return fingerprint.equals(metadataDao.getFingerprint(getMongoDatabase(), changelogCollectionName));
+	}
+
+	/**
+	 * Stores the fingerprint of a completely applied migration plan. Buffered changelog entries are written before.
+	 *
+	 * @param fingerprint fingerprint of the applied migration plan
+	 * @throws MongoBumblebeeConnectionException if not connected
+	 * @throws MongoBumblebeeLockException if the process lock has been taken over by another process
+	 */
+	public void saveFingerprint(String fingerprint) throws MongoBumblebeeConnectionException, MongoBumblebeeLockException {
+		verifyDbConnection();
+		flushChangeLog();
+		metadataDao.saveFingerprint(getMongoDatabase(), changelogCollectionName, fingerprint);
+	}
+
 	private void ensureChangeLogCollectionIndex(MongoTemplate template, String collectionName) {
 		template.indexOps(collectionName).ensureIndex(new CompoundIndexDefinition(new Document().append(ChangeEntry.KEY_CHANGEID, 1).append(ChangeEntry.KEY_AUTHOR, 1)).unique());
+		// history queries, see findChangeLogHistory and findSlowestChangeSets
+		template.indexOps(collectionName).createIndex(new Index().named(MongoBumblebee.MB_PREFIX + "timestamp_idx").on(ChangeEntry.KEY_TIMESTAMP, Sort.Direction.DESC));
+		template.indexOps(collectionName).createIndex(new Index().named(MongoBumblebee.MB_PREFIX + "duration_idx").on(ChangeEntry.KEY_DURATION, Sort.Direction.DESC).sparse());
 	}
 	
 	public void close() {
@@ -189,6 +627,14 @@ public class ChangeEntryDao {
 		this.lockDao.setLockCollectionName(lockCollectionName);
 	}
 
+	public void setLockKey(String lockKey) {
+		this.lockDao.setLockKey(lockKey);
+	}
+
+	public void setMetadataCollectionName(String metadataCollectionName) {
+		this.metadataDao.setMetadataCollectionName(metadataCollectionName);
+	}
+
 	public boolean isThrowExceptionIfCannotObtainLock() {
 		return throwExceptionIfCannotObtainLock;
 	}
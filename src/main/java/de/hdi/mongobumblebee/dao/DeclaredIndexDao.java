@@ -0,0 +1,249 @@
+package de.hdi.mongobumblebee.dao;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonNumber;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.changeset.DeclaredIndexes;
+import de.hdi.mongobumblebee.changeset.DeclaredIndexes.DeclaredIndex;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds the {@link DeclaredIndexes declared indexes} which don't exist yet. While an index is built, its progress is read
+ * from {@code currentOp} and logged.
+ */
+@Slf4j
+public class DeclaredIndexDao {
+
+	public static final String KEY_CREATED = "created";
+	public static final String KEY_EXISTING = "existing";
+
+	private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+
+	private final MongoDatabase mongoDatabase;
+	private final MongoDatabase adminDatabase;
+	private final Duration progressInterval;
+
+	/**
+	 * @param mongoDatabase database of the indexed collections
+	 * @param adminDatabase admin database to read the progress from, null if the progress isn't logged
+	 */
+	public DeclaredIndexDao(MongoDatabase mongoDatabase, MongoDatabase adminDatabase) {
+		this(mongoDatabase, adminDatabase, PROGRESS_INTERVAL);
+	}
+
+	DeclaredIndexDao(MongoDatabase mongoDatabase, MongoDatabase adminDatabase, Duration progressInterval) {
+		this.mongoDatabase = mongoDatabase;
+		this.adminDatabase = adminDatabase;
+		this.progressInterval = progressInterval;
+	}
+
+	/**
+	 * Builds the missing indexes
+	 *
+	 * @param declaredIndexes indexes which should exist
+	 * @return names of the created and the already existing indexes
+	 * @throws MongoBumblebeeChangeSetException if an index exists with other options, or another index has its name
+	 */
+	public Document apply(DeclaredIndexes declaredIndexes) throws MongoBumblebeeChangeSetException {
+		Map<String, List<DeclaredIndex>> byCollection = new LinkedHashMap<>();
+		for (DeclaredIndex index : declaredIndexes.getIndexes()) {
+			byCollection.computeIfAbsent(index.getCollectionName(), name -> new ArrayList<>()).add(index);
+		}
+
+		List<String> created = new ArrayList<>();
+		List<String> existing = new ArrayList<>();
+		for (Entry<String, List<DeclaredIndex>> entry : byCollection.entrySet()) {
+			MongoCollection<Document> collection = mongoDatabase.getCollection(entry.getKey());
+			List<Document> existingIndexes = collection.listIndexes().into(new ArrayList<>());
+
+			List<IndexModel> missing = new ArrayList<>();
+			for (DeclaredIndex index : entry.getValue()) {
+				BsonDocument keys = index.getKeys().toBsonDocument();
+				String declaredName = index.getOptions().getName();
+				String name = declaredName != null ? declaredName : indexName(keys);
+				Document found = findIndex(existingIndexes, keys, name);
+				if (found == null) {
+					missing.add(new IndexModel(keys, named(index.getOptions(), name)));
+				} else if ((isText(keys) || sameKeys(found.get("key", Document.class).toBsonDocument(), keys)) && sameOptions(found, index.getOptions(), declaredName)) {
+					name = found.getString("name");
+					existing.add(entry.getKey() + "." + name);
+				} else {
+					throw new MongoBumblebeeChangeSetException("Index " + name + " of collection " + entry.getKey() + " exists with other keys or options: "
+							+ found.toJson() + ". Drop it in a changeset before declaring it again.");
+				}
+			}
+
+			if (declaredIndexes.isBuildTogether() && !missing.isEmpty()) {
+				created.addAll(build(collection, missing).stream().map(name -> entry.getKey() + "." + name).toList());
+			} else {
+				for (IndexModel index : missing) {
+					created.addAll(build(collection, List.of(index)).stream().map(name -> entry.getKey() + "." + name).toList());
+				}
+			}
+		}
+
+		log.info("Indexes created: {}, already existing: {}", created, existing);
+		return new Document(KEY_CREATED, created).append(KEY_EXISTING, existing);
+	}
+
+	private List<String> build(MongoCollection<Document> collection, List<IndexModel> indexes) {
+		String collectionName = collection.getNamespace().getCollectionName();
+		log.info("Building {} indexes of {}", indexes.size(), collectionName);
+		if (adminDatabase == null) {
+			return collection.createIndexes(indexes);
+		}
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name(MongoBumblebee.MB_PREFIX + "-index-progress").factory());
+		progress.scheduleWithFixedDelay(() -> logProgress(collectionName), progressInterval.toMillis(), progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+		try {
+			return collection.createIndexes(indexes);
+		} finally {
+			progress.shutdownNow();
+		}
+	}
+
+	private void logProgress(String collectionName) {
+		try {
+			Document currentOp = adminDatabase.runCommand(new Document("currentOp", true)
+					.append("command.createIndexes", collectionName)
+					.append("command.$db", mongoDatabase.getName()));
+			for (Document op : currentOp.getList("inprog", Document.class, List.of())) {
+				Document progress = op.get("progress", Document.class);
+				if (progress != null) {
+					log.info("Building indexes of {}: {} of {} ({})", collectionName, progress.get("done"), progress.get("total"), op.getString("msg"));
+				}
+			}
+		} catch (MongoException e) {
+			log.debug("Progress of the index build can't be read: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Text indexes are stored with other keys than declared, they are found by name only
+	 */
+	private static Document findIndex(List<Document> existingIndexes, BsonDocument keys, String name) {
+		for (Document index : existingIndexes) {
+			if (!isText(keys) && sameKeys(index.get("key", Document.class).toBsonDocument(), keys)) {
+				return index;
+			}
+		}
+		for (Document index : existingIndexes) {
+			if (name.equals(index.getString("name"))) {
+				return index;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isText(BsonDocument keys) {
+		return keys.values().stream().anyMatch(value -> value.isString() && "text".equals(value.asString().getValue()));
+	}
+
+	/**
+	 * @return true if the keys are the same in the same order. Numbers are compared by value, 1 and 1.0 are equal.
+	 */
+	static boolean sameKeys(BsonDocument a, BsonDocument b) {
+		if (a.size() != b.size()) {
+			return false;
+		}
+		List<Entry<String, BsonValue>> entriesA = new ArrayList<>(a.entrySet());
+		List<Entry<String, BsonValue>> entriesB = new ArrayList<>(b.entrySet());
+		for (int i = 0; i < entriesA.size(); i++) {
+			if (!entriesA.get(i).getKey().equals(entriesB.get(i).getKey()) || !sameValue(entriesA.get(i).getValue(), entriesB.get(i).getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean sameValue(BsonValue a, BsonValue b) {
+		if (a instanceof BsonNumber numberA && b instanceof BsonNumber numberB) {
+			return numberA.doubleValue() == numberB.doubleValue();
+		}
+		return a.equals(b);
+	}
+
+	/**
+	 * @param name declared name of the index, null if any name matches
+	 */
+	static boolean sameOptions(Document index, IndexOptions options, String name) {
+		Number expireAfter = index.get("expireAfterSeconds", Number.class);
+		Document partialFilter = index.get("partialFilterExpression", Document.class);
+		Bson declaredPartialFilter = options.getPartialFilterExpression();
+		return (name == null || name.equals(index.getString("name")))
+				&& options.isUnique() == isTrue(index.get("unique"))
+				&& options.isSparse() == isTrue(index.get("sparse"))
+				&& Objects.equals(options.getExpireAfter(TimeUnit.SECONDS), expireAfter == null ? null : expireAfter.longValue())
+				&& Objects.equals(declaredPartialFilter == null ? null : declaredPartialFilter.toBsonDocument(), partialFilter == null ? null : partialFilter.toBsonDocument());
+	}
+
+	/**
+	 * Index flags are booleans, but indexes created by older tools may store them as numbers, e.g. {@code unique: 1}
+	 */
+	private static boolean isTrue(Object flag) {
+		if (flag instanceof Number number) {
+			return number.doubleValue() != 0;
+		}
+		return Boolean.TRUE.equals(flag);
+	}
+
+	/**
+	 * @return copy of the declared options with the given name, the declared options are left untouched
+	 */
+	static IndexOptions named(IndexOptions options, String name) {
+		return new IndexOptions()
+				.name(name)
+				.background(options.isBackground())
+				.unique(options.isUnique())
+				.sparse(options.isSparse())
+				.expireAfter(options.getExpireAfter(TimeUnit.SECONDS), TimeUnit.SECONDS)
+				.version(options.getVersion())
+				.weights(options.getWeights())
+				.defaultLanguage(options.getDefaultLanguage())
+				.languageOverride(options.getLanguageOverride())
+				.textVersion(options.getTextVersion())
+				.sphereVersion(options.getSphereVersion())
+				.bits(options.getBits())
+				.min(options.getMin())
+				.max(options.getMax())
+				.storageEngine(options.getStorageEngine())
+				.partialFilterExpression(options.getPartialFilterExpression())
+				.collation(options.getCollation())
+				.wildcardProjection(options.getWildcardProjection())
+				.hidden(options.isHidden());
+	}
+
+	/**
+	 * @return name MongoDB gives an index with these keys, e.g. {@code lastName_1_firstName_-1}
+	 */
+	static String indexName(BsonDocument keys) {
+		List<String> parts = new ArrayList<>();
+		for (Entry<String, BsonValue> key : keys.entrySet()) {
+			BsonValue value = key.getValue();
+			parts.add(key.getKey() + "_" + (value.isString() ? value.asString().getValue() : value.isNumber() ? String.valueOf(value.asNumber().intValue()) : value.toString()));
+		}
+		return String.join("_", parts);
+	}
+
+}
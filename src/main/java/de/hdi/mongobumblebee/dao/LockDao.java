@@ -1,26 +1,45 @@
 package de.hdi.mongobumblebee.dao;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 
 import com.mongodb.ErrorCategory;
-import com.mongodb.MongoWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Field;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
 import com.mongodb.client.result.UpdateResult;
 
 import de.hdi.mongobumblebee.MongoBumblebee;
+import de.hdi.mongobumblebee.utils.LockOwner;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Lease based process lock. The lock document carries the owner, the expiry of the lease and a fencing token. Expiry times are
+ * computed by the database server, so the clocks of the processes don't matter. A lock whose lease has expired is taken over by the
+ * next process acquiring it, which increments the fencing token. Lock documents are never removed, only
+ * their lease expires, so the fencing token keeps increasing across all migrations.
+ *
  * @author colsson11
  * @since 13.01.15
  */
@@ -29,30 +48,87 @@ public class LockDao {
 	
 	private static final String KEY_PROP_NAME = "key";
 
-	private static final String LOCK_ENTRY_KEY_VAL = "LOCK";
+	/** Key of the lock of all migrations of a database */
+	public static final String DEFAULT_LOCK_KEY = LockOwner.DEFAULT_LOCK_KEY;
+
+	private static final String KEY_STATUS = "status";
+	private static final String KEY_LAST_ACCESS = "lastAccess";
+	private static final String KEY_EXPIRES_AT = "expiresAt";
+	private static final String KEY_OWNER = "owner";
+	private static final String KEY_TOKEN = "token";
+	private static final String LOCK_HELD = "LOCK_HELD";
+	private static final String LOCK_RELEASED = "RELEASED";
+
+	/** Default duration of a lease, it is extended by every update of the lock */
+	public static final Duration DEFAULT_LEASE_TIME = Duration.ofMinutes(5);
+
+	/** Owner of locks acquired by this process, if not set otherwise */
+	private static final String PROCESS_OWNER = LockOwner.newOwner();
+
+	/** Maximum time (in milliseconds) a single getMore of the change stream blocks on the server */
+	private static final long MAX_AWAIT_TIME = 1000L;
 	
 	private String lockCollectionName;
+	/** Key of the lock document, migrations with different keys don't exclude each other */
+	@Getter
+	@Setter
+	private String lockKey = DEFAULT_LOCK_KEY;
+	@Getter
+	private final String owner;
+	@Getter
+	@Setter
+	private Duration leaseTime = DEFAULT_LEASE_TIME;
+	/** Fencing token of the lock held by this instance, null if no lock is held */
+	@Getter
+	private volatile Long token;
 
 	public LockDao(String lockCollectionName) {
+		this(lockCollectionName, PROCESS_OWNER);
+	}
+
+	/**
+	 * @param lockCollectionName name of the lock collection
+	 * @param owner identity of the lock owner, which has to be unique among all processes migrating the database
+	 */
+	public LockDao(String lockCollectionName, String owner) {
 		this.lockCollectionName = lockCollectionName;
+		this.owner = owner;
 	}
 
 	public void intitializeLock(MongoTemplate template) {
-		template.indexOps(lockCollectionName).ensureIndex(new Index().named(MongoBumblebee.MB_PREFIX + "lock_key_idx").unique().on(KEY_PROP_NAME, Sort.Direction.ASC));
+		IndexOperations indexOps = template.indexOps(lockCollectionName);
+		indexOps.ensureIndex(new Index().named(MongoBumblebee.MB_PREFIX + "lock_key_idx").unique().on(KEY_PROP_NAME, Sort.Direction.ASC));
 	}
 
+	/**
+	 * Acquires the lock if it isn't held or its lease has expired, with a single atomic upsert. If the lock is held by another
+	 * process, the upsert fails with a duplicate key error.
+	 *
+	 * @param db MongoDatabase object
+	 * @return true if the lock has been acquired
+	 */
 	public boolean acquireLock(MongoDatabase db) {
+		Date now = serverTime(db);
+		Bson expired = Filters.or(
+				Filters.eq(KEY_STATUS, LOCK_RELEASED),
+				Filters.lt(KEY_EXPIRES_AT, now),
+				// lock of a version without leases
+				Filters.and(Filters.exists(KEY_EXPIRES_AT, false), Filters.lt(KEY_LAST_ACCESS, Date.from(now.toInstant().minus(leaseTime)))));
+		List<Bson> update = List.of(Aggregates.set(
+				new Field<>(KEY_STATUS, LOCK_HELD),
+				new Field<>(KEY_OWNER, owner),
+				new Field<>(KEY_TOKEN, new Document("$add", List.of(new Document("$ifNull", List.of("$" + KEY_TOKEN, 0L)), 1L))),
+				new Field<>(KEY_LAST_ACCESS, "$$NOW"),
+				new Field<>(KEY_EXPIRES_AT, leaseEnd())));
 
-		Document insertObj = new Document(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL)
-				.append("status", "LOCK_HELD")
-				.append("lastAccess", LocalDateTime.now());
-
-		// acquire lock by attempting to insert the same value in the collection - if it already exists (i.e. lock held)
-		// there will be an exception
 		try {
-			db.getCollection(lockCollectionName).insertOne(insertObj);
-		} catch (MongoWriteException ex) {
-			if (ex.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+			Document lock = db.getCollection(lockCollectionName).findOneAndUpdate(Filters.and(Filters.eq(KEY_PROP_NAME, lockKey), expired), update,
+					new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+			token = lock.get(KEY_TOKEN, Number.class).longValue();
+			log.debug("Process lock acquired by {} with fencing token {}", owner, token);
+		} catch (MongoCommandException ex) {
+			// acquire by upsert - if the lock is held, the upsert inserts a second lock document, which violates the unique index
+			if (ErrorCategory.fromErrorCode(ex.getErrorCode()) == ErrorCategory.DUPLICATE_KEY) {
 				log.warn("Duplicate key exception while acquireLock. Probably the lock has been already acquired by another process.");
 			}
 			return false;
@@ -60,28 +136,90 @@ public class LockDao {
 		return true;
 	}
 	
+	/**
+	 * Extends the lease of the lock held by this instance
+	 *
+	 * @param db MongoDatabase object
+	 */
 	public void updateLock(MongoDatabase db) {
-		Bson filter = Filters.eq("status", "LOCK_HELD");
-		Bson update = Updates.set("lastAccess", LocalDateTime.now());
-		
-		UpdateResult result = db.getCollection(lockCollectionName).updateOne(filter, update);
+		UpdateResult result = db.getCollection(lockCollectionName).updateOne(heldByThis(), extendLease());
 		if ( result.getModifiedCount() != 1 )
-			log.warn("Lock couldn't be updated");
+			log.warn("Lock couldn't be updated, it isn't held by {} with fencing token {} anymore", owner, token);
 	}
 
+	/**
+	 * Releases the lock held by this instance, a lock of another owner is left untouched. The lock document is kept with an expired
+	 * lease, so the fencing token of the next lock is greater.
+	 *
+	 * @param db MongoDatabase object
+	 */
 	public void releaseLock(MongoDatabase db) {
-		// release lock by deleting collection entry
-		db.getCollection(lockCollectionName).deleteMany(new Document(KEY_PROP_NAME, LOCK_ENTRY_KEY_VAL));
+		List<Bson> update = List.of(Aggregates.set(new Field<>(KEY_STATUS, LOCK_RELEASED), new Field<>(KEY_EXPIRES_AT, "$$NOW")));
+		db.getCollection(lockCollectionName).updateOne(heldByThis(), update);
+		token = null;
+	}
+
+	/**
+	 * Checks the fencing token: the lock must still be held by this instance with the token it has been acquired with, i.e. it
+	 * hasn't been taken over by another process after the lease has expired.
+	 *
+	 * @param db MongoDatabase object
+	 * @return true if this instance holds the lock
+	 */
+	public boolean isLockOwned(MongoDatabase db) {
+		return token != null && db.getCollection(lockCollectionName).countDocuments(heldByThis()) == 1;
+	}
+
+	/**
+	 * Checks the fencing token in the transaction of the given session. A read alone doesn't conflict with a process taking the lock
+	 * over, so the lease is extended instead: the update of the lock document conflicts with a concurrent takeover, and the
+	 * transaction is retried or aborted.
+	 *
+	 * @param db MongoDatabase object
+	 * @param session session of the running transaction
+	 * @return true if this instance holds the lock
+	 */
+	public boolean confirmLock(MongoDatabase db, ClientSession session) {
+		return token != null && db.getCollection(lockCollectionName).updateOne(session, heldByThis(), extendLease()).getMatchedCount() == 1;
+	}
+
+	/**
+	 * Blocks until the lock is released (or deleted) or the maximum waiting time has passed. The lock collection is watched with a
+	 * change stream, which is only available on replica sets and sharded clusters.
+	 *
+	 * @param db MongoDatabase object
+	 * @param maxWait maximum waiting time in milliseconds
+	 * @return true if the lock has been released, false if the waiting time has passed
+	 * @throws com.mongodb.MongoCommandException if change streams are not supported by the server
+	 */
+	public boolean awaitLockRelease(MongoDatabase db, long maxWait) {
+		long deadline = System.currentTimeMillis() + maxWait;
+		List<Bson> pipeline = List.of(Aggregates.match(Filters.or(Filters.in("operationType", "delete", "drop", "invalidate"),
+				Filters.and(Filters.eq("updateDescription.updatedFields." + KEY_STATUS, LOCK_RELEASED), Filters.eq("fullDocument." + KEY_PROP_NAME, lockKey)))));
+		try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = db.getCollection(lockCollectionName).watch(pipeline).fullDocument(FullDocument.UPDATE_LOOKUP)
+				.maxAwaitTime(Math.min(MAX_AWAIT_TIME, Math.max(maxWait, 1L)), TimeUnit.MILLISECONDS).cursor()) {
+			// the lock may have been released before the change stream was opened
+			if (!isLockHeld(db)) {
+				return true;
+			}
+			while (System.currentTimeMillis() < deadline) {
+				if (cursor.tryNext() != null) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	/**
 	 * Check if the lock is held. Could be used by external process for example.
 	 *
 	 * @param db MongoDatabase object
-	 * @return true if the lock is currently held
+	 * @return true if the lock is currently held and its lease hasn't expired
 	 */
 	public boolean isLockHeld(MongoDatabase db) {
-		return db.getCollection(lockCollectionName).countDocuments() == 1;
+		return db.getCollection(lockCollectionName).countDocuments(Filters.and(Filters.eq(KEY_PROP_NAME, lockKey), Filters.eq(KEY_STATUS, LOCK_HELD),
+				Filters.or(Filters.exists(KEY_EXPIRES_AT, false), Filters.expr(new Document("$gt", List.of("$" + KEY_EXPIRES_AT, "$$NOW")))))) == 1;
 	}
 	
 	/**
@@ -91,9 +229,9 @@ public class LockDao {
 	 * @return last access time or null if no lock exisits
 	 */
 	public LocalDateTime getLastAccess(MongoDatabase db) {
-		Document doc = db.getCollection(lockCollectionName).find().first();
+		Document doc = db.getCollection(lockCollectionName).find(Filters.eq(KEY_PROP_NAME, lockKey)).first();
 		if ( doc != null ) {
-			Date dateToConvert = doc.get("lastAccess", Date.class);
+			Date dateToConvert = doc.get(KEY_LAST_ACCESS, Date.class);
 			return dateToConvert
 					.toInstant()
 					.atZone(ZoneId.systemDefault())
@@ -103,8 +241,35 @@ public class LockDao {
 	}
 
 
+	/**
+	 * @return identity of the lock of the form collection/key, fencing tokens are only comparable among the same lock
+	 */
+	public String getLockId() {
+		return lockCollectionName + "/" + lockKey;
+	}
+
 	public void setLockCollectionName(String lockCollectionName) {
 		this.lockCollectionName = lockCollectionName;
 	}
 
+	private Bson heldByThis() {
+		Bson filter = Filters.and(Filters.eq(KEY_PROP_NAME, lockKey), Filters.eq(KEY_STATUS, LOCK_HELD), Filters.eq(KEY_OWNER, owner));
+		return token == null ? filter : Filters.and(filter, Filters.eq(KEY_TOKEN, token));
+	}
+
+	private List<Bson> extendLease() {
+		return List.of(Aggregates.set(new Field<>(KEY_LAST_ACCESS, "$$NOW"), new Field<>(KEY_EXPIRES_AT, leaseEnd())));
+	}
+
+	/**
+	 * @return expression of the end of a lease starting now, evaluated by the server
+	 */
+	private Document leaseEnd() {
+		return new Document("$add", List.of("$$NOW", leaseTime.toMillis()));
+	}
+
+	private static Date serverTime(MongoDatabase db) {
+		return db.runCommand(new Document("hello", 1)).getDate("localTime");
+	}
+
 }
@@ -0,0 +1,54 @@
+package de.hdi.mongobumblebee.dao;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.hdi.mongobumblebee.MongoBumblebee;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refreshes the last access time of the process lock on a virtual thread in a fixed interval,
+ * so long running changesets don't let the lock look starved to other processes.
+ */
+@Slf4j
+class LockHeartbeat {
+
+	private static final long STOP_TIMEOUT_SECONDS = 10L;
+
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Starts the heartbeat
+	 *
+	 * @param heartbeat action refreshing the lock
+	 * @param interval interval in seconds
+	 */
+	LockHeartbeat(Runnable heartbeat, long interval) {
+		this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name(MongoBumblebee.MB_PREFIX + "-lock-heartbeat").factory());
+		this.executor.scheduleAtFixedRate(() -> {
+			try {
+				heartbeat.run();
+			} catch (RuntimeException e) {
+				// an exception would cancel all further executions
+				log.warn("Process lock couldn't be refreshed: {}", e.getMessage());
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the heartbeat and waits for a running refresh to finish
+	 */
+	void stop() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
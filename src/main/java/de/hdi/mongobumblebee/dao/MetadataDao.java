@@ -0,0 +1,45 @@
+package de.hdi.mongobumblebee.dao;
+
+import java.util.Date;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+
+import lombok.Setter;
+
+/**
+ * Metadata of the migrations of one changelog collection, e.g. the fingerprint of the last completely applied migration plan.
+ * There is one document per changelog collection, its id is the name of the changelog collection.
+ */
+public class MetadataDao {
+
+	private static final String KEY_ID = "_id";
+	private static final String KEY_FINGERPRINT = "fingerprint";
+	private static final String KEY_UPDATED = "updated";
+
+	@Setter
+	private String metadataCollectionName;
+
+	public MetadataDao(String metadataCollectionName) {
+		this.metadataCollectionName = metadataCollectionName;
+	}
+
+	/**
+	 * @return fingerprint of the last completely applied migration plan, null if none is stored
+	 */
+	public String getFingerprint(MongoDatabase db, String changelogCollectionName) {
+		Document metadata = db.getCollection(metadataCollectionName).find(Filters.eq(KEY_ID, changelogCollectionName)).first();
+		return metadata == null ? null : metadata.getString(KEY_FINGERPRINT);
+	}
+
+	public void saveFingerprint(MongoDatabase db, String changelogCollectionName, String fingerprint) {
+		Document metadata = new Document(KEY_ID, changelogCollectionName)
+				.append(KEY_FINGERPRINT, fingerprint)
+				.append(KEY_UPDATED, new Date());
+		db.getCollection(metadataCollectionName).replaceOne(Filters.eq(KEY_ID, changelogCollectionName), metadata, new ReplaceOptions().upsert(true));
+	}
+
+}
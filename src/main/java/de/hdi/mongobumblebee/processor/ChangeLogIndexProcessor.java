@@ -0,0 +1,119 @@
+package de.hdi.mongobumblebee.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.utils.ChangeLogIndex;
+import de.hdi.mongobumblebee.utils.ChangeLogIndex.IndexedChangeLog;
+
+/**
+ * Annotation processor writing the {@link ChangeLogIndex} of all @ChangeLog classes of a compilation unit.
+ * The processor is picked up automatically by javac if MongoBumblebee is on the annotation processor path.
+ * An index of a previous (incremental) compilation is merged as long as its changelog classes still exist.
+ */
+@SupportedAnnotationTypes("de.hdi.mongobumblebee.changeset.ChangeLog")
+public class ChangeLogIndexProcessor extends AbstractProcessor {
+
+	private static final String PROFILE_ANNOTATION = "org.springframework.context.annotation.Profile";
+
+	private final Map<String, IndexedChangeLog> changeLogs = new TreeMap<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(ChangeLog.class)) {
+			if (element instanceof TypeElement type) {
+				IndexedChangeLog changeLog = describe(type);
+				changeLogs.put(changeLog.getClassName(), changeLog);
+			}
+		}
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private IndexedChangeLog describe(TypeElement type) {
+		return new IndexedChangeLog(processingEnv.getElementUtils().getBinaryName(type).toString(), type.getAnnotation(ChangeLog.class).order(),
+				profiles(type));
+	}
+
+	private List<String> profiles(Element element) {
+		List<String> profiles = new ArrayList<>();
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (PROFILE_ANNOTATION.equals(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString())) {
+				for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues().entrySet()) {
+					if (value.getValue().getValue() instanceof List<?> values) {
+						values.forEach(v -> profiles.add(String.valueOf(((AnnotationValue) v).getValue())));
+					} else {
+						profiles.add(String.valueOf(value.getValue().getValue()));
+					}
+				}
+			}
+		}
+		return profiles;
+	}
+
+	private void writeIndex() {
+		Filer filer = processingEnv.getFiler();
+		mergePreviousIndex(filer);
+		if (changeLogs.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_LOCATION);
+			try (Writer writer = index.openWriter()) {
+				writer.write("# Generated by " + getClass().getName() + "\n");
+				for (IndexedChangeLog changeLog : changeLogs.values()) {
+					writer.write(ChangeLogIndex.format(changeLog));
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write changelog index: " + e.getMessage());
+		}
+	}
+
+	private void mergePreviousIndex(Filer filer) {
+		Elements elements = processingEnv.getElementUtils();
+		try {
+			FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_LOCATION);
+			try (InputStream in = previous.openInputStream()) {
+				for (IndexedChangeLog changeLog : ChangeLogIndex.read(in)) {
+					TypeElement type = elements.getTypeElement(changeLog.getClassName().replace('$', '.'));
+					if (type != null && type.getAnnotation(ChangeLog.class) != null) {
+						changeLogs.putIfAbsent(changeLog.getClassName(), describe(type));
+					}
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// no previous index
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+package de.hdi.mongobumblebee.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index of the @ChangeLog classes of a compilation, generated at compile time by
+ * {@link de.hdi.mongobumblebee.processor.ChangeLogIndexProcessor} and stored as {@value #INDEX_LOCATION}.
+ * <p>
+ * Each line describes a changelog. Fields are tab separated:
+ * <pre>
+ * changelog  className  order  profiles
+ * </pre>
+ * Profiles are comma separated. Tabs, line breaks and backslashes within values are escaped with a backslash.
+ */
+@Slf4j
+public final class ChangeLogIndex {
+
+	public static final String INDEX_LOCATION = "META-INF/mongobumblebee/changelogs.idx";
+
+	private static final String CHANGELOG = "changelog";
+	private static final char SEPARATOR = '\t';
+
+	private ChangeLogIndex() {
+	}
+
+	/**
+	 * Changelog class as listed in the index
+	 */
+	@Value
+	public static class IndexedChangeLog {
+		String className;
+		String order;
+		List<String> profiles;
+	}
+
+	/**
+	 * Loads and merges all indexes visible to the given class loader
+	 *
+	 * @param classLoader class loader used to locate the index resources
+	 * @return indexed changelogs, empty if no index was found
+	 */
+	public static List<IndexedChangeLog> load(ClassLoader classLoader) {
+		Map<String, IndexedChangeLog> changeLogs = new LinkedHashMap<>();
+		for (List<IndexedChangeLog> index : loadByRoot(classLoader).values()) {
+			for (IndexedChangeLog changeLog : index) {
+				changeLogs.putIfAbsent(changeLog.getClassName(), changeLog);
+			}
+		}
+		return new ArrayList<>(changeLogs.values());
+	}
+
+	/**
+	 * Loads all indexes visible to the given class loader, keyed by the classpath root (directory or jar) containing them.
+	 * The roots have the form of the package roots of {@link org.reflections.util.ClasspathHelper#forPackage(String, ClassLoader...)},
+	 * e.g. {@code file:/app/classes/} or {@code jar:file:/app/lib/changelogs.jar!/}. An index which can't be read is left out, so
+	 * its root is scanned instead.
+	 *
+	 * @param classLoader class loader used to locate the index resources
+	 * @return indexed changelogs per classpath root, empty if no index was found
+	 */
+	public static Map<String, List<IndexedChangeLog>> loadByRoot(ClassLoader classLoader) {
+		Map<String, List<IndexedChangeLog>> indexes = new LinkedHashMap<>();
+		Enumeration<URL> resources;
+		try {
+			resources = classLoader.getResources(INDEX_LOCATION);
+		} catch (IOException e) {
+			log.warn("Changelog indexes could not be located, falling back to classpath scanning: {}", e.getMessage());
+			return indexes;
+		}
+		while (resources.hasMoreElements()) {
+			URL resource = resources.nextElement();
+			String location = resource.toExternalForm();
+			try (InputStream in = resource.openStream()) {
+				indexes.putIfAbsent(location.substring(0, location.length() - INDEX_LOCATION.length()), read(in));
+			} catch (IOException e) {
+				log.warn("Changelog index {} could not be read, falling back to classpath scanning: {}", location, e.getMessage());
+			}
+		}
+		return indexes;
+	}
+
+	/**
+	 * Parses a single index
+	 *
+	 * @param in index content
+	 * @return indexed changelogs in the order of the index
+	 * @throws IOException if the index can't be read or is malformed
+	 */
+	public static List<IndexedChangeLog> read(InputStream in) throws IOException {
+		List<IndexedChangeLog> changeLogs = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isBlank() || line.startsWith("#")) {
+				continue;
+			}
+			List<String> fields = split(line);
+			if (CHANGELOG.equals(fields.get(0)) && fields.size() == 4) {
+				changeLogs.add(new IndexedChangeLog(fields.get(1), fields.get(2), splitProfiles(fields.get(3))));
+			} else {
+				throw new IOException("Malformed changelog index line: " + line);
+			}
+		}
+		return changeLogs;
+	}
+
+	/**
+	 * Formats a changelog as index line
+	 *
+	 * @param changeLog indexed changelog
+	 * @return index line including the trailing line break
+	 */
+	public static String format(IndexedChangeLog changeLog) {
+		StringBuilder sb = new StringBuilder();
+		appendLine(sb, CHANGELOG, changeLog.getClassName(), changeLog.getOrder(), String.join(",", changeLog.getProfiles()));
+		return sb.toString();
+	}
+
+	private static void appendLine(StringBuilder sb, String... fields) {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				sb.append(SEPARATOR);
+			}
+			escape(sb, fields[i]);
+		}
+		sb.append('\n');
+	}
+
+	private static void escape(StringBuilder sb, String value) {
+		for (char c : value.toCharArray()) {
+			switch (c) {
+			case '\\' -> sb.append("\\\\");
+			case '\t' -> sb.append("\\t");
+			case '\n' -> sb.append("\\n");
+			case '\r' -> sb.append("\\r");
+			default -> sb.append(c);
+			}
+		}
+	}
+
+	private static List<String> split(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\\' && i + 1 < line.length()) {
+				char next = line.charAt(++i);
+				field.append(switch (next) {
+				case 't' -> '\t';
+				case 'n' -> '\n';
+				case 'r' -> '\r';
+				default -> next;
+				});
+			} else if (c == SEPARATOR) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static List<String> splitProfiles(String profiles) {
+		return profiles.isEmpty() ? List.of() : List.of(profiles.split(","));
+	}
+
+}
@@ -1,26 +1,45 @@
 package de.hdi.mongobumblebee.utils;
 
 import static java.util.Arrays.asList;
+import static org.springframework.util.StringUtils.hasText;
 
 import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.reflections.Reflections;
+import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Profile;
 import org.springframework.lang.NonNull;
 
+import de.hdi.mongobumblebee.batch.BatchMigrator;
 import de.hdi.mongobumblebee.changeset.ChangeEntry;
 import de.hdi.mongobumblebee.changeset.ChangeLog;
 import de.hdi.mongobumblebee.changeset.ChangeSet;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
+import de.hdi.mongobumblebee.changeset.DeclaredIndexes;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.utils.ChangeLogIndex.IndexedChangeLog;
+import de.hdi.mongobumblebee.utils.MigrationPlan.PlannedChangeLog;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Utilities to deal with reflections and annotations
@@ -28,6 +47,7 @@ import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
  * @author lstolowski
  * @since 27/07/2014
  */
+@Slf4j
 public class ChangeService {
 
 	public static final String DEFAULT_PROFILE = "default";
@@ -36,28 +56,279 @@ public class ChangeService {
 	
 	private final List<String> activeProfiles;
 
+	private final boolean useChangeLogIndex;
+
 	public ChangeService(String changeLogsBasePackage) {
 		this(changeLogsBasePackage, List.of(DEFAULT_PROFILE));
 	}
 
 	public ChangeService(String changeLogsBasePackage, @NonNull List<String> activeProfiles) {
+		this(changeLogsBasePackage, activeProfiles, true);
+	}
+
+	/**
+	 * @param changeLogsBasePackage package containing the changelogs
+	 * @param activeProfiles active Spring profiles
+	 * @param useChangeLogIndex if true the changelogs of classpath roots (directories or jars) with a compile time
+	 *            {@link ChangeLogIndex} are taken from the index, only roots without index are scanned. Otherwise the whole
+	 *            classpath is scanned.
+	 */
+	public ChangeService(String changeLogsBasePackage, @NonNull List<String> activeProfiles, boolean useChangeLogIndex) {
 		this.changeLogsBasePackage = changeLogsBasePackage;
 		this.activeProfiles = activeProfiles;
+		this.useChangeLogIndex = useChangeLogIndex;
 	}
 
 	public List<Class<?>> fetchChangeLogs() {
+		Set<Class<?>> changeLogs = new LinkedHashSet<>();
+		Collection<URL> packageRoots = ClasspathHelper.forPackage(changeLogsBasePackage);
+		if (useChangeLogIndex) {
+			packageRoots = fetchIndexedChangeLogs(changeLogs, packageRoots);
+		}
+		if (!packageRoots.isEmpty()) {
+			changeLogs.addAll(scanChangeLogs(packageRoots));
+		}
+		List<Class<?>> filteredChangeLogs = filterByActiveProfiles(changeLogs);
+
+		Collections.sort(filteredChangeLogs, new ChangeLogComparator());
+
+		return filteredChangeLogs;
+	}
+
+	/**
+	 * Adds the changelogs of all classpath roots with a changelog index. The processor indexes every changelog of a compilation,
+	 * so an index is complete for its root, roots without index have to be scanned.
+	 *
+	 * @param changeLogs changelogs found so far
+	 * @param packageRoots classpath roots containing the base package
+	 * @return package roots without index
+	 */
+	private Collection<URL> fetchIndexedChangeLogs(Set<Class<?>> changeLogs, Collection<URL> packageRoots) {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		if (classLoader == null) {
+			classLoader = ChangeService.class.getClassLoader();
+		}
+		Map<String, List<IndexedChangeLog>> indexes = ChangeLogIndex.loadByRoot(classLoader);
+		int before = changeLogs.size();
+		for (List<IndexedChangeLog> index : indexes.values()) {
+			for (IndexedChangeLog indexed : index) {
+				if (!indexed.getClassName().startsWith(changeLogsBasePackage + ".")) {
+					continue;
+				}
+				try {
+					Class<?> changeLog = Class.forName(indexed.getClassName(), false, classLoader);
+					if (changeLog.isAnnotationPresent(ChangeLog.class)) {
+						changeLogs.add(changeLog);
+					}
+				} catch (ClassNotFoundException | LinkageError e) {
+					log.warn("Changelog {} is listed in the changelog index but can't be loaded", indexed.getClassName());
+				}
+			}
+		}
+		List<URL> unindexedRoots = packageRoots.stream().filter(root -> !indexes.containsKey(root.toExternalForm())).toList();
+		log.debug("{} changelogs taken from the changelog index, {} classpath roots without index are scanned", changeLogs.size() - before,
+				unindexedRoots.size());
+		return unindexedRoots;
+	}
+
+	private Set<Class<?>> scanChangeLogs(Collection<URL> packageRoots) {
 		// Workaround for https://github.com/ronmamo/reflections/issues/373 ([0.10.2] Reflections does not detect any classes, 
 		// if base class (or package prefix) is passed as argument, and application is running as a jar) 
 		ConfigurationBuilder configuration = new ConfigurationBuilder()
-				.forPackages(changeLogsBasePackage)
+				.addUrls(packageRoots)
 				.setInputsFilter(s -> s.contains(changeLogsBasePackage));
 		Reflections reflections = new Reflections(configuration);
-		Set<Class<?>> changeLogs = reflections.getTypesAnnotatedWith(ChangeLog.class);
-		List<Class<?>> filteredChangeLogs = filterByActiveProfiles(changeLogs);
+		return reflections.getTypesAnnotatedWith(ChangeLog.class);
+	}
 
-		Collections.sort(filteredChangeLogs, new ChangeLogComparator());
+	/**
+	 * Splits the sorted changelogs into groups executed one after another. Changelogs of the same parallel group
+	 * which directly follow each other form a group, every other changelog forms a group of its own.
+	 *
+	 * @param changeLogs sorted changelogs
+	 * @return groups in execution order
+	 */
+	public List<List<Class<?>>> groupByParallelGroup(List<Class<?>> changeLogs) {
+		List<List<Class<?>>> groups = new ArrayList<>();
+		String currentGroup = "";
+		for (Class<?> changeLog : changeLogs) {
+			String parallelGroup = changeLog.getAnnotation(ChangeLog.class).parallelGroup();
+			if (groups.isEmpty() || !hasText(parallelGroup) || !parallelGroup.equals(currentGroup)) {
+				groups.add(new ArrayList<>());
+			}
+			groups.get(groups.size() - 1).add(changeLog);
+			currentGroup = parallelGroup;
+		}
+		return groups;
+	}
 
-		return filteredChangeLogs;
+	/**
+	 * Binds a changeset method to the objects a runner passes to changesets
+	 *
+	 * @param <T> invoker of the runner
+	 */
+	@FunctionalInterface
+	public interface ChangeSetBinder<T> {
+
+		/**
+		 * @param changeSet changeset method
+		 * @return invoker of the method
+		 * @throws MongoBumblebeeChangeSetException if a parameter can't be resolved
+		 */
+		T bind(Method changeSet) throws MongoBumblebeeChangeSetException;
+	}
+
+	/**
+	 * Changelog class and the bound invokers of its active changesets in execution order
+	 *
+	 * @param <T> invoker of the runner
+	 */
+	@Value
+	public static class BoundChangeLog<T> {
+		Class<?> changeLogClass;
+		List<T> changeSets;
+	}
+
+	/**
+	 * Fetches all active changelogs and changesets and validates them as a whole, before anything is executed.
+	 * Detected are changeset methods with unsupported signatures, changelogs which can't be instantiated,
+	 * duplicated id/author combinations across changelogs and ambiguous orders of changelogs or changesets.
+	 *
+	 * @param applicationContext application context to resolve changeset arguments from, may be null
+	 * @return validated migration plan
+	 * @throws MongoBumblebeeChangeSetException listing all problems found
+	 */
+	public MigrationPlan createMigrationPlan(ApplicationContext applicationContext) throws MongoBumblebeeChangeSetException {
+		List<List<PlannedChangeLog>> groups = new ArrayList<>();
+		for (List<BoundChangeLog<ChangeSetInvoker>> group : bindChangeLogs(changeSet -> ChangeSetInvoker.bind(changeSet, applicationContext))) {
+			groups.add(group.stream().map(changeLog -> new PlannedChangeLog(changeLog.getChangeLogClass(), changeLog.getChangeSets())).toList());
+		}
+		return new MigrationPlan(groups, fingerprint(groups), groups.stream().flatMap(List::stream)
+				.flatMap(changeLog -> changeLog.getChangeSets().stream())
+				.anyMatch(invoker -> isRunAlwaysChangeSet(invoker.getMethod())));
+	}
+
+	/**
+	 * Fetches all active changelogs and changesets, validates them like {@link #createMigrationPlan(ApplicationContext)} and binds
+	 * the changesets with the binder of the runner
+	 *
+	 * @param <T> invoker of the runner
+	 * @param binder binds the changeset methods
+	 * @return changelogs with their bound changesets, grouped by parallel group in execution order
+	 * @throws MongoBumblebeeChangeSetException listing all problems found
+	 */
+	public <T> List<List<BoundChangeLog<T>>> bindChangeLogs(ChangeSetBinder<T> binder) throws MongoBumblebeeChangeSetException {
+		List<String> errors = new ArrayList<>();
+		Map<String, Method> changeSetsById = new HashMap<>();
+		Map<String, Class<?>> changeLogsByOrder = new HashMap<>();
+		List<List<BoundChangeLog<T>>> groups = new ArrayList<>();
+
+		for (List<Class<?>> group : groupByParallelGroup(fetchChangeLogs())) {
+			List<BoundChangeLog<T>> boundGroup = new ArrayList<>();
+			for (Class<?> changeLog : group) {
+				Class<?> sameChangeLogOrder = changeLogsByOrder.putIfAbsent(changeLogOrder(changeLog), changeLog);
+				if (sameChangeLogOrder != null) {
+					errors.add(String.format("Changelogs %s and %s have the same order '%s'", sameChangeLogOrder.getName(), changeLog.getName(), changeLogOrder(changeLog)));
+				}
+				if (!hasSupportedConstructor(changeLog)) {
+					errors.add(String.format("Changelog %s needs a public no-arg constructor or a constructor taking an ApplicationContext", changeLog.getName()));
+				}
+
+				List<Method> changeSets;
+				try {
+					changeSets = fetchChangeSets(changeLog);
+				} catch (MongoBumblebeeChangeSetException e) {
+					errors.add(changeLog.getName() + ": " + e.getMessage());
+					continue;
+				}
+
+				List<T> invokers = new ArrayList<>();
+				Map<String, Method> changeSetsByOrder = new HashMap<>();
+				for (Method changeSet : changeSets) {
+					ChangeSet annotation = changeSet.getAnnotation(ChangeSet.class);
+					Method duplicate = changeSetsById.putIfAbsent(annotation.id() + '/' + annotation.author(), changeSet);
+					if (duplicate != null) {
+						errors.add(String.format("Duplicated changeset id '%s' of author '%s' found in %s and %s", annotation.id(), annotation.author(),
+								describe(duplicate), describe(changeSet)));
+					}
+					Method sameOrder = changeSetsByOrder.putIfAbsent(annotation.order(), changeSet);
+					if (sameOrder != null) {
+						errors.add(String.format("Changesets %s and %s have the same order '%s'", describe(sameOrder), describe(changeSet), annotation.order()));
+					}
+					if (annotation.transactional() && (ChangeSetInvoker.hasParameter(changeSet, BatchMigrator.class) || ChangeSetInvoker.hasParameter(changeSet, ChangeSetCheckpoint.class))) {
+						errors.add(String.format("Changeset %s can't be transactional, batch migrations and checkpoints are written outside of the transaction", describe(changeSet)));
+					}
+					if (annotation.transactional() && DeclaredIndexes.class.isAssignableFrom(changeSet.getReturnType())) {
+						errors.add(String.format("Changeset %s can't be transactional, declared indexes are built outside of the transaction", describe(changeSet)));
+					}
+					try {
+						invokers.add(binder.bind(changeSet));
+					} catch (MongoBumblebeeChangeSetException e) {
+						errors.add(changeLog.getName() + ": " + e.getMessage());
+					}
+				}
+				boundGroup.add(new BoundChangeLog<>(changeLog, List.copyOf(invokers)));
+			}
+			groups.add(boundGroup);
+		}
+
+		if (!errors.isEmpty()) {
+			throw new MongoBumblebeeChangeSetException("Invalid changelogs found:\n  " + String.join("\n  ", errors));
+		}
+		return groups;
+	}
+
+	/**
+	 * Hashes everything which identifies the changesets of a plan and their order. Profiles are covered by the fact that
+	 * only the changesets active for the current profiles are part of the plan.
+	 */
+	private static String fingerprint(List<List<PlannedChangeLog>> groups) {
+		StringBuilder plan = new StringBuilder();
+		for (List<PlannedChangeLog> group : groups) {
+			plan.append("group\n");
+			for (PlannedChangeLog changeLog : group) {
+				plan.append(changeLog.getChangeLogClass().getName()).append('\t').append(changeLogOrder(changeLog.getChangeLogClass())).append('\n');
+				for (ChangeSetInvoker invoker : changeLog.getChangeSets()) {
+					ChangeSet changeSet = invoker.getMethod().getAnnotation(ChangeSet.class);
+					plan.append('\t').append(invoker.getMethod().getName())
+						.append('\t').append(changeSet.id())
+						.append('\t').append(changeSet.author())
+						.append('\t').append(changeSet.order())
+						.append('\t').append(changeSet.runAlways())
+						.append('\n');
+				}
+			}
+		}
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(plan.toString().getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String changeLogOrder(Class<?> changeLog) {
+		String order = changeLog.getAnnotation(ChangeLog.class).order();
+		return hasText(order) ? order : changeLog.getCanonicalName();
+	}
+
+	private static boolean hasSupportedConstructor(Class<?> changeLog) {
+		for (Constructor<?> constructor : changeLog.getDeclaredConstructors()) {
+			Class<?>[] parameterTypes = constructor.getParameterTypes();
+			if (parameterTypes.length == 1 && parameterTypes[0].equals(ApplicationContext.class)) {
+				return true;
+			}
+		}
+		for (Constructor<?> constructor : changeLog.getConstructors()) {
+			if (constructor.getParameterCount() == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String describe(Method changeSet) {
+		return changeSet.getDeclaringClass().getName() + "." + changeSet.getName();
 	}
 
 	public List<Method> fetchChangeSets(final Class<?> type) throws MongoBumblebeeChangeSetException {
@@ -78,6 +349,11 @@ public class ChangeService {
 		}
 	}
 
+	public boolean isTransactionalChangeSet(Method changesetMethod) {
+		ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+		return annotation != null && annotation.transactional();
+	}
+
 	public ChangeEntry createChangeEntry(Method changesetMethod){
 		if (changesetMethod.isAnnotationPresent(ChangeSet.class)){
 			ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
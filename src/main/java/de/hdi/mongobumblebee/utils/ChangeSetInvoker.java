@@ -0,0 +1,178 @@
+package de.hdi.mongobumblebee.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.batch.BatchMigrator;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Invocation plan of a changeset method. The method signature is validated and an argument resolver is chosen for every
+ * parameter once, when the invoker is bound. The method is called through a method handle afterwards.
+ * <p>
+ * Supported parameter types are {@link MongoTemplate} (or {@link MongoOperations}), {@link MongoDatabase}, {@link Environment},
+ * {@link ApplicationContext}, {@link BatchMigrator}, {@link ChangeSetCheckpoint} and {@link ClientSession} (transactional changesets only). If an application context is available, any other parameter is resolved as Spring bean of its type.
+ */
+public final class ChangeSetInvoker {
+
+	/**
+	 * Objects which may be passed to changeset methods during one execution
+	 */
+	@Value
+	@Builder(toBuilder = true)
+	public static class ChangeSetContext {
+		MongoTemplate mongoTemplate;
+		MongoDatabase mongoDatabase;
+		Environment environment;
+		ApplicationContext applicationContext;
+		BatchMigrator batchMigrator;
+		/** Checkpoint of the changeset, only set for changesets declaring a checkpoint parameter */
+		ChangeSetCheckpoint checkpoint;
+		/** Session of the transaction of a transactional changeset, null otherwise */
+		ClientSession session;
+	}
+
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	@Getter
+	private final Method method;
+	private final MethodHandle handle;
+	private final List<Function<ChangeSetContext, Object>> resolvers;
+
+	private ChangeSetInvoker(Method method, MethodHandle handle, List<Function<ChangeSetContext, Object>> resolvers) {
+		this.method = method;
+		this.handle = handle;
+		this.resolvers = resolvers;
+	}
+
+	/**
+	 * Validates the signature of a changeset method and prepares its invocation
+	 *
+	 * @param method changeset method
+	 * @param applicationContext application context to resolve beans from, may be null
+	 * @return invoker of the method
+	 * @throws MongoBumblebeeChangeSetException if a parameter can't be resolved or the method is not accessible
+	 */
+	public static ChangeSetInvoker bind(Method method, ApplicationContext applicationContext) throws MongoBumblebeeChangeSetException {
+		List<Function<ChangeSetContext, Object>> resolvers = new ArrayList<>();
+		for (Class<?> type : method.getParameterTypes()) {
+			resolvers.add(resolver(method, type, applicationContext));
+		}
+
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.lookup().unreflect(method);
+		} catch (IllegalAccessException e) {
+			throw new MongoBumblebeeChangeSetException("ChangeSet method " + method.getName() + " is not accessible: " + e.getMessage());
+		}
+		if (Modifier.isStatic(method.getModifiers())) {
+			handle = MethodHandles.dropArguments(handle, 0, Object.class);
+		}
+		handle = handle.asSpreader(Object[].class, resolvers.size()).asType(INVOKER_TYPE);
+
+		return new ChangeSetInvoker(method, handle, List.copyOf(resolvers));
+	}
+
+	private static Function<ChangeSetContext, Object> resolver(Method method, Class<?> type, ApplicationContext applicationContext) throws MongoBumblebeeChangeSetException {
+		if (type.equals(MongoTemplate.class) || type.equals(MongoOperations.class)) {
+			return ChangeSetContext::getMongoTemplate;
+		} else if (type.equals(MongoDatabase.class)) {
+			return ChangeSetContext::getMongoDatabase;
+		} else if (type.equals(Environment.class)) {
+			return ChangeSetContext::getEnvironment;
+		} else if (type.equals(ApplicationContext.class)) {
+			return ChangeSetContext::getApplicationContext;
+		} else if (type.equals(BatchMigrator.class)) {
+			return ChangeSetContext::getBatchMigrator;
+		} else if (type.equals(ChangeSetCheckpoint.class)) {
+			return ChangeSetContext::getCheckpoint;
+		} else if (type.equals(ClientSession.class)) {
+			return ChangeSetContext::getSession;
+		} else if (applicationContext != null && hasBean(method, type, applicationContext)) {
+			return context -> context.getApplicationContext().getBean(type);
+		}
+		throw new MongoBumblebeeChangeSetException("ChangeSet method " + method.getName() + " has wrong arguments list. Argument of type "
+				+ type.getName() + " can't be resolved. Please see docs for more info!");
+	}
+
+	/**
+	 * Checks whether a parameter is resolved by a bean. Several beans of the type need a primary one, so an ambiguous parameter fails
+	 * when the changeset is bound instead of in the middle of the migration.
+	 *
+	 * @param method changeset method
+	 * @param type type of the parameter
+	 * @param applicationContext application context to resolve beans from
+	 * @return true if the application context has a bean of the type
+	 * @throws MongoBumblebeeChangeSetException if there are several beans of the type and none of them is primary
+	 */
+	public static boolean hasBean(Method method, Class<?> type, ApplicationContext applicationContext) throws MongoBumblebeeChangeSetException {
+		String[] beanNames = applicationContext.getBeanNamesForType(type);
+		if (beanNames.length > 1 && applicationContext.getBeanProvider(type).getIfUnique() == null) {
+			throw new MongoBumblebeeChangeSetException("ChangeSet method " + method.getName() + " has an ambiguous argument of type " + type.getName()
+					+ ": beans " + String.join(", ", beanNames) + " match and none of them is primary");
+		}
+		return beanNames.length > 0;
+	}
+
+	/**
+	 * @param type parameter type
+	 * @return true if the changeset method declares a parameter of the given type
+	 */
+	public boolean hasParameter(Class<?> type) {
+		return hasParameter(method, type);
+	}
+
+	/**
+	 * @param method changeset method
+	 * @param type parameter type
+	 * @return true if the changeset method declares a parameter of the given type
+	 */
+	public static boolean hasParameter(Method method, Class<?> type) {
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (parameterType.equals(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Calls the changeset method
+	 *
+	 * @param changeLogInstance instance of the changelog class
+	 * @param context objects of the current execution
+	 * @return return value of the changeset method, null for void methods
+	 * @throws InvocationTargetException wrapping anything thrown by the changeset method
+	 */
+	public Object invoke(Object changeLogInstance, ChangeSetContext context) throws InvocationTargetException {
+		Object[] args = new Object[resolvers.size()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = resolvers.get(i).apply(context);
+		}
+		try {
+			return handle.invokeExact(changeLogInstance, args);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+}
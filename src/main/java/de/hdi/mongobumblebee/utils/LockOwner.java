@@ -0,0 +1,37 @@
+package de.hdi.mongobumblebee.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Identity of the processes taking the process lock. The class doesn't depend on a MongoDB driver, it is shared by the blocking
+ * and the reactive runner.
+ */
+public final class LockOwner {
+
+	/** Key of the lock of all migrations of a database */
+	public static final String DEFAULT_LOCK_KEY = "LOCK";
+
+	/** Name of the host this process runs on */
+	public static final String HOST = hostName();
+
+	private LockOwner() {
+	}
+
+	/**
+	 * @return new owner identity of the form host:pid:random, unique among all processes migrating a database
+	 */
+	public static String newOwner() {
+		return HOST + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	private static String hostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return "unknown";
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package de.hdi.mongobumblebee.utils;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Validated changelogs and changesets of a migration in execution order. Changelogs are split into groups which are executed
+ * one after another, the changelogs of one group may be executed concurrently.
+ */
+@Getter
+public class MigrationPlan {
+
+	/**
+	 * Changelog class and the invokers of its active changesets in execution order
+	 */
+	@Value
+	public static class PlannedChangeLog {
+		Class<?> changeLogClass;
+		List<ChangeSetInvoker> changeSets;
+	}
+
+	private final List<List<PlannedChangeLog>> groups;
+	/** SHA-256 (hex) over the changelogs and changesets of the plan, changes whenever a changeset is added, removed or altered */
+	private final String fingerprint;
+	/** True if the plan contains a changeset which is executed on every migration */
+	private final boolean runAlways;
+
+	public MigrationPlan(List<List<PlannedChangeLog>> groups, String fingerprint, boolean runAlways) {
+		this.groups = List.copyOf(groups);
+		this.fingerprint = fingerprint;
+		this.runAlways = runAlways;
+	}
+
+	/**
+	 * @return all changelogs in execution order
+	 */
+	public List<PlannedChangeLog> getChangeLogs() {
+		return groups.stream().flatMap(List::stream).toList();
+	}
+
+}
@@ -1,13 +1,19 @@
 
 module de.hdi.mongobumblebee {
 
+	exports de.hdi.mongobumblebee.batch;
 	exports de.hdi.mongobumblebee.changeset;
 	exports de.hdi.mongobumblebee.exception;
 	exports de.hdi.mongobumblebee;
+	// changelog scanning and validation, shared with the reactive runner
+	exports de.hdi.mongobumblebee.utils;
 	
 	opens de.hdi.mongobumblebee;
 	
+	provides javax.annotation.processing.Processor with de.hdi.mongobumblebee.processor.ChangeLogIndexProcessor;
+	
 	requires lombok;
+	requires static java.compiler;
 	requires org.reflections;
 	requires transitive org.mongodb.driver.sync.client;
 	requires org.mongodb.driver.core;
@@ -18,5 +24,6 @@ module de.hdi.mongobumblebee {
 	requires transitive spring.core;
 	requires spring.data.mongodb;
 	requires spring.data.commons;
+	requires static micrometer.observation;
 	
 }
\ No newline at end of file
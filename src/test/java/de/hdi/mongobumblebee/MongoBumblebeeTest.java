@@ -1,6 +1,8 @@
 package de.hdi.mongobumblebee;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -13,12 +15,21 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -28,12 +39,22 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoDatabase;
 
 import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.changeset.ChangeSetStatus;
+import de.hdi.mongobumblebee.changeset.PlannedChangeSet;
 import de.hdi.mongobumblebee.dao.ChangeEntryDao;
 import de.hdi.mongobumblebee.dao.ChangeEntryIndexDao;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeException;
 import de.hdi.mongobumblebee.test.changelogs.MongoBumblebeeTestResource;
+import de.hdi.mongobumblebee.test.failing.FailingRunAlwaysChangeLog;
+import de.hdi.mongobumblebee.test.invalid.FirstInvalidChangeLog;
+import de.hdi.mongobumblebee.test.parallel.FirstParallelChangeLog;
+import de.hdi.mongobumblebee.test.transactional.TransactionalChangeLog;
 import de.hdi.mongobumblebee.utils.EmbeddedMongoDBHelper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
 
 @ExtendWith(MockitoExtension.class)
 public class MongoBumblebeeTest {
@@ -131,6 +152,336 @@ public class MongoBumblebeeTest {
 		assertEquals(8, changeAll);
 	}
 
+	@Test
+	void shouldPlanChangeSetsWithoutLock() throws Exception {
+		// given
+		when(dao.connectMongoDbReadOnly(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.fetchAppliedChangeEntries()).thenReturn(Set.of(
+				ChangeEntryDao.changeLogKey("test1", USER),
+				ChangeEntryDao.changeLogKey("Btest3", USER)));
+
+		// when
+		List<PlannedChangeSet> plan = runner.plan();
+
+		// then
+		assertEquals(9, plan.size());
+		assertEquals(new PlannedChangeSet("test1", USER, MongoBumblebeeTestResource.class.getName(), "testChangeSet", ChangeSetStatus.APPLIED), plan.get(0));
+		assertEquals(ChangeSetStatus.NEW, plan.get(1).getStatus());
+		assertEquals(ChangeSetStatus.RUN_ALWAYS, plan.stream().filter(c -> c.getChangeId().equals("Btest3")).findFirst().orElseThrow().getStatus());
+		assertEquals(8, plan.stream().filter(PlannedChangeSet::isPending).count());
+		verify(dao, never()).connectMongoDb(any(MongoClient.class), anyString());
+		verify(dao, never()).acquireProcessLock();
+		verify(dao, never()).save(any(ChangeEntry.class));
+	}
+
+	@Test
+	void shouldRecordFailureOfRunAlwaysChangeSet() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FailingRunAlwaysChangeLog.class.getPackage().getName());
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(false);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+		ArgumentCaptor<ChangeEntry> failure = ArgumentCaptor.forClass(ChangeEntry.class);
+
+		// when
+		assertThrows(MongoBumblebeeException.class, () -> runner.execute());
+
+		// then
+		verify(dao).saveFailure(failure.capture());
+		assertEquals("failingRunAlways1", failure.getValue().getChangeId());
+		assertEquals(ChangeEntry.OUTCOME_FAILED, failure.getValue().getOutcome());
+		verify(dao, never()).save(any(ChangeEntry.class));
+	}
+
+	@Test
+	void shouldReadChangeLogHistoryWithoutWriting() throws Exception {
+		// given
+		ChangeEntry entry = new ChangeEntry("test1", USER, new Date(), MongoBumblebeeTestResource.class.getName(), "testChangeSet", null);
+		when(dao.connectMongoDbReadOnly(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.findChangeLogHistory(null, 0)).thenReturn(List.of(entry));
+		when(dao.findSlowestChangeSets(null, 1)).thenReturn(List.of(entry));
+
+		// when
+		List<ChangeEntry> history = runner.findChangeLogHistory(null, 0);
+		List<ChangeEntry> slowest = runner.findSlowestChangeSets(null, 1);
+
+		// then
+		assertEquals(List.of(entry), history);
+		assertEquals(List.of(entry), slowest);
+		verify(dao, never()).connectMongoDb(any(MongoClient.class), anyString());
+	}
+
+	@Test
+	void shouldSkipMigrationIfFingerprintIsUpToDate() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FirstParallelChangeLog.class.getPackage().getName());
+		runner.setUseFingerprint(true);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.isFingerprintUpToDate(anyString())).thenReturn(true);
+
+		// when
+		runner.execute();
+
+		// then
+		verify(dao, never()).acquireProcessLock();
+		verify(dao, never()).isNewChange(any(ChangeEntry.class));
+	}
+
+	@Test
+	void shouldSaveFingerprintAfterMigration() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FirstParallelChangeLog.class.getPackage().getName());
+		runner.setUseFingerprint(true);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.isFingerprintUpToDate(anyString())).thenReturn(false);
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+
+		// when
+		runner.execute();
+
+		// then
+		verify(dao, times(1)).saveFingerprint(anyString());
+	}
+
+	@Test
+	void shouldIgnoreFingerprintIfChangeSetsRunAlways() throws Exception {
+		// given
+		runner.setUseFingerprint(true);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+
+		// when
+		runner.execute();
+
+		// then
+		verify(dao, never()).isFingerprintUpToDate(anyString());
+		verify(dao, atLeastOnce()).isNewChange(any(ChangeEntry.class));
+	}
+
+	@Test
+	void shouldObserveMigrationPhases() throws Exception {
+		// given
+		List<Observation.Context> observations = new CopyOnWriteArrayList<>();
+		ObservationRegistry observationRegistry = ObservationRegistry.create();
+		observationRegistry.observationConfig().observationHandler(new ObservationHandler<Observation.Context>() {
+			@Override
+			public void onStop(Observation.Context context) {
+				observations.add(context);
+			}
+
+			@Override
+			public boolean supportsContext(Observation.Context context) {
+				return true;
+			}
+		});
+		runner.setChangeLogsScanPackage(FirstParallelChangeLog.class.getPackage().getName());
+		runner.setObservationRegistry(observationRegistry);
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+
+		// when
+		runner.execute();
+
+		// then
+		List<String> names = observations.stream().map(Observation.Context::getName).toList();
+		assertEquals(1, names.stream().filter(MigrationObservations.FETCH_CHANGELOGS::equals).count());
+		assertEquals(1, names.stream().filter(MigrationObservations.CONNECT::equals).count());
+		assertEquals(1, names.stream().filter(MigrationObservations.ACQUIRE_LOCK::equals).count());
+		assertEquals(1, names.stream().filter(MigrationObservations.LOCK_HELD::equals).count());
+		assertEquals(6, names.stream().filter(MigrationObservations.SAVE::equals).count());
+		Observation.Context changeSet = observations.stream().filter(c -> c.getName().equals(MigrationObservations.CHANGESET)).findFirst().orElseThrow();
+		assertEquals("firstParallel1", changeSet.getLowCardinalityKeyValue(MigrationObservations.KEY_CHANGESET_ID).getValue());
+		assertEquals("applied", changeSet.getLowCardinalityKeyValue(MigrationObservations.KEY_OUTCOME).getValue());
+		assertEquals(0, runner.getPendingChangeSetCount());
+	}
+
+	@Test
+	void shouldNotAcquireLockForInvalidChangeLogs() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FirstInvalidChangeLog.class.getPackage().getName());
+
+		// when
+		assertThrows(MongoBumblebeeChangeSetException.class, () -> runner.execute());
+
+		// then
+		verify(dao, never()).acquireProcessLock();
+		verify(dao, never()).save(any(ChangeEntry.class));
+	}
+
+	@Test
+	void shouldExecuteTransactionalChangeSetWithoutTransactionIfUnsupported() throws Exception {
+		// given
+		mongoDatabase.getCollection("transactional").drop();
+		runner.setChangeLogsScanPackage(TransactionalChangeLog.class.getPackage().getName());
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+		when(dao.isTransactionSupported()).thenReturn(false);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+
+		// when
+		runner.execute();
+
+		// then
+		verify(dao).save(any(ChangeEntry.class));
+		verify(dao, never()).startSession();
+		assertEquals(1, mongoDatabase.getCollection("transactional").countDocuments());
+	}
+
+	@Test
+	void shouldExecuteParallelGroupConcurrently() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FirstParallelChangeLog.class.getPackage().getName());
+		runner.setChangeLogParallelism(2);
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+		doCallRealMethod().when(dao).save(any(ChangeEntry.class));
+
+		// when
+		runner.execute();
+
+		// then
+		verify(dao, times(6)).save(any(ChangeEntry.class));
+		long changes = mongoDatabase.getCollection(CHANGELOG_COLLECTION_NAME)
+				.countDocuments(new Document().append(ChangeEntry.KEY_AUTHOR, MongoBumblebeeTest.USER));
+		assertEquals(6, changes);
+	}
+
+	@Test
+	void shouldExecuteAsync() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FirstParallelChangeLog.class.getPackage().getName());
+		when(dao.acquireProcessLock()).thenReturn(true);
+		when(dao.isNewChange(any(ChangeEntry.class))).thenReturn(true);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.getMongoDatabase()).thenReturn(mongoDatabase);
+
+		// when
+		CompletableFuture<MigrationReport> future = runner.executeAsync();
+		MigrationReport report = future.get(30, TimeUnit.SECONDS);
+
+		// then
+		assertSame(future, runner.getMigration());
+		assertEquals(MigrationReport.Status.MIGRATED, report.getStatus());
+		assertEquals(6, report.getAppliedChangeSets().size());
+		assertEquals(0, report.getPassedOverChangeSets());
+		verify(dao).releaseProcessLock();
+	}
+
+	@Test
+	void shouldCompleteAsyncMigrationExceptionally() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FirstInvalidChangeLog.class.getPackage().getName());
+		runner.setExecutor(Runnable::run);
+
+		// when
+		CompletableFuture<MigrationReport> future = runner.executeAsync();
+
+		// then
+		ExecutionException e = assertThrows(ExecutionException.class, future::get);
+		assertInstanceOf(MongoBumblebeeChangeSetException.class, e.getCause());
+	}
+
+	@Test
+	void shouldCompleteAsyncMigrationOnError() throws Exception {
+		// given
+		runner.setExecutor(Runnable::run);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenThrow(new StackOverflowError("test"));
+
+		// when
+		CompletableFuture<MigrationReport> future = runner.executeAsync();
+
+		// then
+		ExecutionException e = assertThrows(ExecutionException.class, future::get);
+		assertInstanceOf(StackOverflowError.class, e.getCause());
+	}
+
+	@Test
+	void shouldRejectOverlappingAsyncMigration() throws Exception {
+		// given
+		List<Runnable> started = new CopyOnWriteArrayList<>();
+		runner.setExecutor(started::add);
+		CompletableFuture<MigrationReport> running = runner.executeAsync();
+
+		// when
+		CompletableFuture<MigrationReport> overlapping = runner.executeAsync();
+
+		// then
+		ExecutionException e = assertThrows(ExecutionException.class, overlapping::get);
+		assertInstanceOf(MongoBumblebeeException.class, e.getCause());
+		assertSame(running, runner.getMigration());
+		assertEquals(1, started.size());
+	}
+
+	@Test
+	void shouldRejectExecuteDuringAsyncMigration() throws Exception {
+		// given
+		List<Runnable> started = new CopyOnWriteArrayList<>();
+		runner.setExecutor(started::add);
+		runner.executeAsync();
+
+		// when
+		MongoBumblebeeException e = assertThrows(MongoBumblebeeException.class, runner::execute);
+
+		// then
+		assertEquals("Migration of this runner is already in progress", e.getMessage());
+		assertEquals(1, started.size());
+	}
+
+	@Test
+	void shouldExecuteAfterRejectedAsyncMigration() throws Exception {
+		// given
+		runner.setExecutor(command -> {
+			throw new RejectedExecutionException();
+		});
+		CompletableFuture<MigrationReport> rejected = runner.executeAsync();
+
+		// when
+		runner.setEnabled(false);
+		runner.execute();
+
+		// then
+		assertTrue(rejected.isCompletedExceptionally());
+	}
+
+	@Test
+	void shouldReportLockNotAcquired() throws Exception {
+		// given
+		when(dao.acquireProcessLock()).thenReturn(false);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+
+		// when
+		MigrationReport report = runner.executeAsync().get(30, TimeUnit.SECONDS);
+
+		// then
+		assertEquals(MigrationReport.Status.LOCK_NOT_ACQUIRED, report.getStatus());
+		assertTrue(report.getAppliedChangeSets().isEmpty());
+	}
+
+	@Test
+	void shouldScopeProcessLock() throws Exception {
+		// given
+		when(dao.acquireProcessLock()).thenReturn(false);
+		when(dao.connectMongoDb(any(MongoClient.class), anyString())).thenReturn(mongoDatabase);
+		when(dao.getChangelogCollectionName()).thenReturn("servicechangelog");
+		runner.setLockScope(LockScope.CHANGELOG_COLLECTION);
+
+		// when
+		runner.execute();
+
+		// then
+		verify(dao).setLockKey("LOCK:servicechangelog");
+		assertEquals("LOCK:de.hdi.mongobumblebee.test.changelogs", runner.setLockScope(LockScope.SCAN_PACKAGE).resolveLockKey());
+		assertEquals("orders", runner.setLockKey("orders").resolveLockKey());
+	}
+
 	@Test
 	void shouldPassOverChangeSets() throws Exception {
 		// given
@@ -0,0 +1,80 @@
+package de.hdi.mongobumblebee;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+
+import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeException;
+import de.hdi.mongobumblebee.test.transactional.TransactionalChangeLog;
+import de.hdi.mongobumblebee.test.transactionfailure.FailingTransactionalChangeLog;
+import de.hdi.mongobumblebee.utils.EmbeddedMongoDBHelper;
+
+/**
+ * Tests for transactional changesets on a single node replica set
+ */
+class MongoBumblebeeTransactionTest {
+
+	private MongoClient mongoClient;
+
+	private MongoDatabase mongoDatabase;
+
+	private MongoBumblebee runner;
+
+	@BeforeEach
+	void init() {
+		mongoClient = EmbeddedMongoDBHelper.startReplicaSetClient();
+		mongoDatabase = mongoClient.getDatabase(MongoBumblebeeTest.DB_NAME);
+		mongoDatabase.drop();
+		runner = new MongoBumblebee(mongoClient, MongoBumblebeeTest.DB_NAME)
+				.setChangelogCollectionName(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME)
+				.setUseChangeLogIndex(false);
+	}
+
+	@AfterEach
+	void cleanup() {
+		EmbeddedMongoDBHelper.stopMongoClient(mongoClient);
+	}
+
+	@Test
+	void shouldCommitChangeSetTogetherWithChangeLogEntry() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(TransactionalChangeLog.class.getPackage().getName());
+
+		// when
+		runner.execute();
+
+		// then
+		assertEquals(1, mongoDatabase.getCollection("transactional").countDocuments());
+		assertEquals(1, changeLog().countDocuments(Filters.and(Filters.eq(ChangeEntry.KEY_CHANGEID, "transactional1"),
+				Filters.eq(ChangeEntry.KEY_OUTCOME, ChangeEntry.OUTCOME_SUCCESS))));
+	}
+
+	@Test
+	void shouldRollBackFailingChangeSet() throws Exception {
+		// given
+		runner.setChangeLogsScanPackage(FailingTransactionalChangeLog.class.getPackage().getName());
+
+		// when
+		assertThrows(MongoBumblebeeException.class, () -> runner.execute());
+
+		// then
+		assertEquals(0, mongoDatabase.getCollection("transactional").countDocuments());
+		// only the failure is recorded after the rollback
+		assertEquals(0, changeLog().countDocuments(Filters.ne(ChangeEntry.KEY_OUTCOME, ChangeEntry.OUTCOME_FAILED)));
+	}
+
+	private MongoCollection<Document> changeLog() {
+		return mongoDatabase.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+	}
+
+}
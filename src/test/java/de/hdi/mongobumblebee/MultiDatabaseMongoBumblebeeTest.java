@@ -0,0 +1,139 @@
+package de.hdi.mongobumblebee;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+
+import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeLockException;
+import de.hdi.mongobumblebee.utils.MigrationPlan;
+
+class MultiDatabaseMongoBumblebeeTest {
+
+	private final MongoClient mongoClient = mock(MongoClient.class);
+
+	private final Map<String, MongoBumblebee> runners = new HashMap<>();
+
+	private MongoBumblebee runner(String database) {
+		return runners.computeIfAbsent(database, name -> mock(MongoBumblebee.class));
+	}
+
+	@Test
+	void shouldPlanOnceAndMigrateAllDatabases() throws Exception {
+
+		// given
+		MigrationPlan plan = new MigrationPlan(List.of(), "fingerprint", false);
+		MigrationReport report = MigrationReport.of(MigrationReport.Status.MIGRATED, Duration.ZERO);
+		when(runner("tenant1").createMigrationPlan()).thenReturn(plan);
+		when(runner("tenant1").migrate(plan)).thenReturn(report);
+		when(runner("tenant2").migrate(plan)).thenReturn(report);
+		when(runner("tenant3").migrate(plan)).thenReturn(report);
+
+		// when
+		MultiDatabaseReport result = new MultiDatabaseMongoBumblebee(mongoClient, this::runner)
+				.setDatabaseNames(List.of("tenant1", "tenant2", "tenant3"))
+				.setParallelism(2)
+				.execute();
+
+		// then
+		assertEquals(List.of("tenant1", "tenant2", "tenant3"), List.copyOf(result.getReports().keySet()));
+		assertSame(report, result.getReports().get("tenant2"));
+		assertEquals(Map.of(), result.getFailures());
+		verify(runner("tenant2"), never()).createMigrationPlan();
+		verify(runner("tenant3"), never()).createMigrationPlan();
+	}
+
+	@Test
+	void shouldReportFailedDatabasesAndMigrateTheOthers() throws Exception {
+
+		// given
+		MigrationPlan plan = new MigrationPlan(List.of(), "fingerprint", false);
+		MigrationReport report = MigrationReport.of(MigrationReport.Status.MIGRATED, Duration.ZERO);
+		MongoBumblebeeLockException failure = new MongoBumblebeeLockException("Could not acquire process lock");
+		when(runner("tenant1").createMigrationPlan()).thenReturn(plan);
+		when(runner("tenant1").migrate(plan)).thenThrow(failure);
+		when(runner("tenant2").migrate(plan)).thenReturn(report);
+
+		// when
+		MultiDatabaseReport result = new MultiDatabaseMongoBumblebee(mongoClient, this::runner)
+				.setDatabaseNames(List.of("tenant1", "tenant2"))
+				.execute();
+
+		// then
+		assertFalse(result.isSuccessful());
+		assertSame(failure, result.getFailures().get("tenant1"));
+		assertEquals(Set.of("tenant2"), result.getReports().keySet());
+	}
+
+	@Test
+	void shouldReportErrorsOfDatabases() throws Exception {
+
+		// given
+		MigrationPlan plan = new MigrationPlan(List.of(), "fingerprint", false);
+		NoClassDefFoundError failure = new NoClassDefFoundError("com/example/Missing");
+		when(runner("tenant1").createMigrationPlan()).thenReturn(plan);
+		when(runner("tenant1").migrate(plan)).thenThrow(failure);
+
+		// when
+		MultiDatabaseReport result = new MultiDatabaseMongoBumblebee(mongoClient, this::runner)
+				.setDatabaseNames(List.of("tenant1"))
+				.execute();
+
+		// then
+		assertFalse(result.isSuccessful());
+		assertSame(failure, result.getFailures().get("tenant1"));
+		assertEquals(Map.of(), result.getReports());
+	}
+
+	@Test
+	void shouldDiscoverDatabasesByPattern() throws Exception {
+
+		// given
+		@SuppressWarnings("unchecked")
+		MongoIterable<String> databaseNames = mock(MongoIterable.class);
+		@SuppressWarnings("unchecked")
+		MongoCursor<String> cursor = mock(MongoCursor.class);
+		when(mongoClient.listDatabaseNames()).thenReturn(databaseNames);
+		when(databaseNames.iterator()).thenReturn(cursor);
+		when(cursor.hasNext()).thenReturn(true, true, true, true, false);
+		when(cursor.next()).thenReturn("admin", "tenant_b", "other", "tenant_a");
+
+		// when
+		List<String> databases = new MultiDatabaseMongoBumblebee(mongoClient, this::runner)
+				.setDatabaseNames(List.of("tenant_a"))
+				.setDatabasePattern(Pattern.compile("tenant_.*"))
+				.resolveDatabaseNames();
+
+		// then
+		assertEquals(List.of("tenant_a", "tenant_b"), databases);
+	}
+
+	@Test
+	void shouldFailWithoutDatabases() {
+
+		// given
+		MultiDatabaseMongoBumblebee multiRunner = new MultiDatabaseMongoBumblebee(mongoClient, this::runner);
+
+		// when
+		assertThrows(MongoBumblebeeConfigurationException.class, multiRunner::execute);
+	}
+
+}
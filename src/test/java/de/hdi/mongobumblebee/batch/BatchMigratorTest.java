@@ -0,0 +1,173 @@
+package de.hdi.mongobumblebee.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
+import de.hdi.mongobumblebee.utils.EmbeddedMongoDBHelper;
+
+class BatchMigratorTest {
+
+	private static final String COLLECTION_NAME = "batch";
+
+	private MongoDatabase db;
+
+	private MongoCollection<Document> collection;
+
+	@BeforeEach
+	void init() {
+		db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		collection = db.getCollection(COLLECTION_NAME);
+		collection.drop();
+		collection.insertMany(IntStream.range(0, 25).mapToObj(i -> new Document("_id", i).append("even", i % 2 == 0)).toList());
+	}
+
+	@Test
+	void shouldMigrateAllDocumentsInIdOrder() {
+		// given
+		List<Object> ids = new ArrayList<>();
+
+		// when
+		BatchResult result = new BatchMigrator(db).collection(COLLECTION_NAME)
+				.setBatchSize(10)
+				.run(document -> {
+					ids.add(document.get("_id"));
+					return new UpdateOneModel<>(Filters.eq("_id", document.get("_id")), Updates.set("migrated", true));
+				});
+
+		// then
+		assertEquals(new BatchResult(25, 25), result);
+		assertEquals(IntStream.range(0, 25).boxed().toList(), ids);
+		assertEquals(25, collection.countDocuments(Filters.eq("migrated", true)));
+	}
+
+	@Test
+	void shouldMigrateFilteredDocumentsOnly() {
+		// when
+		BatchResult result = new BatchMigrator(db).collection(COLLECTION_NAME)
+				.setFilter(Filters.eq("even", true))
+				.setBatchSize(4)
+				.setQueueCapacity(1)
+				.run(document -> document.getInteger("_id") < 10 ? new UpdateOneModel<>(Filters.eq("_id", document.get("_id")), Updates.set("migrated", true)) : null);
+
+		// then
+		assertEquals(new BatchResult(13, 5), result);
+		assertEquals(5, collection.countDocuments(Filters.eq("migrated", true)));
+	}
+
+	@Test
+	void shouldResumeFromCheckpoint() {
+		// given
+		List<Document> saved = new ArrayList<>();
+		ChangeSetCheckpoint checkpoint = new ChangeSetCheckpoint(new Document(ChangeSetCheckpoint.KEY_LAST_ID, 19).append(ChangeSetCheckpoint.KEY_PROCESSED, 20L), saved::add);
+		List<Object> ids = new ArrayList<>();
+
+		// when
+		BatchResult result = new BatchMigrator(db).collection(COLLECTION_NAME)
+				.setBatchSize(3)
+				.setCheckpoint(checkpoint)
+				.run(document -> {
+					ids.add(document.get("_id"));
+					return null;
+				});
+
+		// then
+		assertEquals(new BatchResult(5, 0), result);
+		assertEquals(List.of(20, 21, 22, 23, 24), ids);
+		assertEquals(List.of(new Document(ChangeSetCheckpoint.KEY_LAST_ID, 22).append(ChangeSetCheckpoint.KEY_PROCESSED, 23L),
+				new Document(ChangeSetCheckpoint.KEY_LAST_ID, 24).append(ChangeSetCheckpoint.KEY_PROCESSED, 25L)), saved);
+		assertEquals(25L, checkpoint.getProcessed());
+	}
+
+	@Test
+	void shouldMigrateRangesConcurrently() {
+		// given
+		List<Object> ids = Collections.synchronizedList(new ArrayList<>());
+
+		// when
+		BatchResult result = new BatchMigrator(db).collection(COLLECTION_NAME)
+				.setFilter(Filters.eq("even", true))
+				.setBatchSize(2)
+				.setParallelism(3)
+				.run(document -> {
+					ids.add(document.get("_id"));
+					return new UpdateOneModel<>(Filters.eq("_id", document.get("_id")), Updates.set("migrated", true));
+				});
+
+		// then
+		assertEquals(new BatchResult(13, 13), result);
+		assertEquals(IntStream.range(0, 25).filter(i -> i % 2 == 0).boxed().collect(Collectors.toSet()), new HashSet<>(ids));
+		assertEquals(13, ids.size());
+		assertEquals(13, collection.countDocuments(Filters.eq("migrated", true)));
+	}
+
+	@Test
+	void shouldSplitDocumentsIntoIdRanges() {
+		// when
+		List<Bson> ranges = new BatchMigrator(db).collection(COLLECTION_NAME).setParallelism(4).splitRanges();
+
+		// then
+		assertEquals(4, ranges.size());
+		long documents = 0;
+		for (Bson range : ranges) {
+			long count = collection.countDocuments(range);
+			assertTrue(count > 0);
+			documents += count;
+		}
+		assertEquals(25, documents);
+	}
+
+	@Test
+	void shouldNotCombineCheckpointAndParallelism() {
+		// when
+		BatchMigration migration = new BatchMigrator(db).collection(COLLECTION_NAME)
+				.setParallelism(2)
+				.setCheckpoint(new ChangeSetCheckpoint(null, document -> { }));
+
+		// then
+		assertThrows(IllegalStateException.class, () -> migration.run(document -> null));
+	}
+
+	@Test
+	void shouldStopRangesIfMigrationFails() {
+		// when
+		BatchMigration migration = new BatchMigrator(db).collection(COLLECTION_NAME).setBatchSize(2).setParallelism(4);
+
+		// then
+		assertThrows(IllegalArgumentException.class, () -> migration.run(document -> {
+			throw new IllegalArgumentException("failed");
+		}));
+	}
+
+	@Test
+	void shouldStopReadingIfMigrationFails() {
+		// when
+		BatchMigration migration = new BatchMigrator(db).collection(COLLECTION_NAME).setBatchSize(2).setQueueCapacity(1);
+
+		// then
+		assertThrows(IllegalArgumentException.class, () -> migration.run(document -> {
+			throw new IllegalArgumentException("failed");
+		}));
+	}
+
+}
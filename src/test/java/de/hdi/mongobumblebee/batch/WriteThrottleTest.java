@@ -0,0 +1,96 @@
+package de.hdi.mongobumblebee.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+
+class WriteThrottleTest {
+
+	private static final Duration PAUSE = Duration.ofMillis(1);
+
+	@Test
+	void shouldCalculateLagOfSlowestSecondary() {
+		// given
+		long now = System.currentTimeMillis();
+
+		// when
+		Duration lag = WriteThrottle.replicationLag(status(now, now - 5000, now - 2000));
+
+		// then
+		assertEquals(Duration.ofSeconds(5), lag);
+		assertEquals(Duration.ZERO, WriteThrottle.replicationLag(new Document()));
+	}
+
+	@Test
+	void shouldPauseWhileReplicationLagIsTooHigh() {
+		// given
+		long now = System.currentTimeMillis();
+		MongoDatabase admin = mock(MongoDatabase.class);
+		when(admin.runCommand(any(Bson.class))).thenReturn(status(now, now - 60000), status(now, now - 20000), status(now, now - 100));
+		WriteThrottle throttle = new WriteThrottle(0, Duration.ofSeconds(10), admin, Duration.ofHours(1), PAUSE);
+
+		// when
+		throttle.acquire(10);
+		throttle.acquire(10);
+
+		// then
+		verify(admin, times(3)).runCommand(any(Bson.class));
+	}
+
+	@Test
+	void shouldNotCheckLagIfItCantBeSampled() {
+		// given
+		MongoDatabase admin = mock(MongoDatabase.class);
+		when(admin.runCommand(any(Bson.class))).thenThrow(new MongoException("not running with --replSet"));
+		WriteThrottle throttle = new WriteThrottle(0, Duration.ofSeconds(10), admin, Duration.ZERO, PAUSE);
+
+		// when
+		throttle.acquire(10);
+		throttle.acquire(10);
+
+		// then
+		verify(admin, times(1)).runCommand(any(Bson.class));
+	}
+
+	@Test
+	void shouldLimitWriteRate() {
+		// given
+		WriteThrottle throttle = new WriteThrottle(1000, null, null, Duration.ZERO, PAUSE);
+		long start = System.nanoTime();
+
+		// when
+		throttle.acquire(100);
+		throttle.acquire(100);
+		throttle.acquire(100);
+
+		// then
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 190);
+	}
+
+	private static Document status(long primary, long... secondaries) {
+		List<Document> members = new ArrayList<>();
+		members.add(new Document("stateStr", "PRIMARY").append("optimeDate", new Date(primary)));
+		for (long secondary : secondaries) {
+			members.add(new Document("stateStr", "SECONDARY").append("optimeDate", new Date(secondary)));
+		}
+		members.add(new Document("stateStr", "ARBITER"));
+		return new Document("members", members);
+	}
+
+}
@@ -1,27 +1,46 @@
 package de.hdi.mongobumblebee.dao;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 
 import de.hdi.mongobumblebee.MongoBumblebee;
 import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeEntry;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeConfigurationException;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeLockException;
 import de.hdi.mongobumblebee.utils.EmbeddedMongoDBHelper;
+import de.hdi.mongobumblebee.utils.LockOwner;
 
 /**
  * @author lstolowski
@@ -126,6 +145,31 @@ class ChangeEntryDaoTest {
 
 	}
 
+	@Test
+	void shouldUseProvidedMongoTemplate() throws MongoBumblebeeConfigurationException {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		MongoTemplate template = mock(MongoTemplate.class);
+		when(template.indexOps(anyString())).thenReturn(mock(IndexOperations.class));
+		dao.setMongoTemplate(template);
+
+		LockDao lockDao = mock(LockDao.class);
+		dao.setLockDao(lockDao);
+
+		// when
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		// then
+		verify(template).indexOps(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		verify(lockDao).intitializeLock(template);
+	}
+
 	@Test
 	void shouldGetLockWhenLockDaoGetsLock() throws Exception {
 
@@ -174,6 +218,63 @@ class ChangeEntryDaoTest {
 		assertTrue(hasLock);
 	}
 
+	@Test
+	void shouldWatchLockReleaseIfEnabled() throws Exception {
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, true,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.setWatchLockRelease(true);
+
+		LockDao lockDao = mock(LockDao.class);
+		when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(false, false, true);
+		when(lockDao.awaitLockRelease(any(MongoDatabase.class), anyLong())).thenReturn(true);
+		dao.setLockDao(lockDao);
+
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		// when
+		boolean hasLock = dao.acquireProcessLock();
+
+		// then
+		verify(lockDao, times(3)).acquireLock(any(MongoDatabase.class));
+		verify(lockDao, times(1)).awaitLockRelease(any(MongoDatabase.class), anyLong());
+		assertTrue(hasLock);
+	}
+
+	@Test
+	void shouldBackOffIfLockReleaseCantBeWatched() throws Exception {
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, true,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.setWatchLockRelease(true);
+
+		LockDao lockDao = mock(LockDao.class);
+		when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(false, false, false, true);
+		BsonDocument response = new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(40573)).append("errmsg", new BsonString("not a replica set"));
+		when(lockDao.awaitLockRelease(any(MongoDatabase.class), anyLong())).thenThrow(new MongoCommandException(response, new ServerAddress()));
+		dao.setLockDao(lockDao);
+
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		// when
+		long start = System.currentTimeMillis();
+		boolean hasLock = dao.acquireProcessLock();
+
+		// then
+		verify(lockDao, times(4)).acquireLock(any(MongoDatabase.class));
+		verify(lockDao, times(1)).awaitLockRelease(any(MongoDatabase.class), anyLong());
+		assertTrue(hasLock);
+		assertTrue(System.currentTimeMillis() - start < MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE * 1000);
+	}
+
 	@Test
 	void shouldThrowLockExceptionIfThrowExceptionIsTrue() throws Exception {
 		// given
@@ -241,4 +342,422 @@ class ChangeEntryDaoTest {
 		assertTrue(lockHeld);
 	}
 
+	@Test
+	void shouldNotWriteChangeLogIfLockHasBeenTakenOver() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+
+		LockDao lockDao = mock(LockDao.class);
+		when(lockDao.getToken()).thenReturn(7L);
+		when(lockDao.isLockOwned(db)).thenReturn(false);
+		dao.setLockDao(lockDao);
+
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+		ChangeEntry changeEntry = new ChangeEntry("fenced", "testuser", new Date(), "de.hdi.FencedChangeLog", "fenced", null);
+
+		// when
+		assertThrows(MongoBumblebeeLockException.class, () -> dao.save(changeEntry));
+
+		// then
+		assertTrue(dao.isNewChange(changeEntry));
+	}
+
+	@Test
+	void shouldStopWaitingForLockWhenInterrupted() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		when(mongoClient.getDatabase(anyString())).thenReturn(mock(MongoDatabase.class));
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, true, 1L, 60L, false);
+		LockDao lockDao = mock(LockDao.class);
+		when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(false);
+		dao.setLockDao(lockDao);
+		dao.connectMongoDbReadOnly(mongoClient, MongoBumblebeeTest.DB_NAME);
+		long start = System.currentTimeMillis();
+
+		// when
+		Thread.currentThread().interrupt();
+		boolean acquired = dao.acquireProcessLock();
+
+		// then
+		assertFalse(acquired);
+		assertTrue(Thread.interrupted());
+		assertTrue(System.currentTimeMillis() - start < 60_000L);
+		verify(lockDao, times(2)).acquireLock(any(MongoDatabase.class));
+	}
+
+	@Test
+	void shouldNotOverwriteChangeLogOfGreaterFencingToken() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		MongoCollection<Document> changeLog = db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		changeLog.drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+
+		LockDao lockDao = mock(LockDao.class);
+		when(lockDao.getToken()).thenReturn(7L);
+		when(lockDao.getLockId()).thenReturn(MongoBumblebeeTest.LOCK_COLLECTION_NAME + "/" + LockDao.DEFAULT_LOCK_KEY);
+		when(lockDao.isLockOwned(db)).thenReturn(true);
+		dao.setLockDao(lockDao);
+
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+		ChangeEntry newer = new ChangeEntry("fenced", "testuser", new Date(), "de.hdi.FencedChangeLog", "fenced", null);
+		newer.started(LockOwner.HOST, "newer", dao.getLockId(), 8L);
+		newer.finished(ChangeEntry.OUTCOME_SUCCESS);
+		changeLog.insertOne(newer.buildFullDBObject());
+		ChangeEntry changeEntry = new ChangeEntry("fenced", "testuser", new Date(), "de.hdi.FencedChangeLog", "fenced", null);
+		changeEntry.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+		changeEntry.finished(ChangeEntry.OUTCOME_FAILED);
+
+		// when
+		assertThrows(MongoBumblebeeLockException.class, () -> dao.saveFailure(changeEntry));
+
+		// then
+		Document entry = changeLog.find().first();
+		assertEquals(8L, entry.get(ChangeEntry.KEY_LOCK_TOKEN));
+		assertEquals(ChangeEntry.OUTCOME_SUCCESS, entry.get(ChangeEntry.KEY_OUTCOME));
+	}
+
+	@Test
+	void shouldWriteChangeLogAfterLockScopeHasChanged() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		MongoCollection<Document> changeLog = db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		changeLog.drop();
+		db.getCollection(MongoBumblebeeTest.LOCK_COLLECTION_NAME).drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+		// two runs with the lock of the database, the second one with fencing token 2
+		dao.acquireProcessLock();
+		dao.releaseProcessLock();
+		dao.acquireProcessLock();
+		ChangeEntry first = new ChangeEntry("runAlways1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		first.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+		first.finished(ChangeEntry.OUTCOME_SUCCESS);
+		dao.save(first);
+		dao.releaseProcessLock();
+
+		// when
+		dao.setLockKey(LockDao.DEFAULT_LOCK_KEY + ":de.hdi.changelogs");
+		dao.acquireProcessLock();
+		ChangeEntry second = new ChangeEntry("runAlways1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		second.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+		second.finished(ChangeEntry.OUTCOME_SUCCESS);
+		dao.save(second);
+		dao.releaseProcessLock();
+
+		// then
+		Document entry = changeLog.find().first();
+		assertEquals(1, changeLog.countDocuments());
+		assertEquals(1L, entry.get(ChangeEntry.KEY_LOCK_TOKEN));
+		assertEquals(MongoBumblebeeTest.LOCK_COLLECTION_NAME + "/" + LockDao.DEFAULT_LOCK_KEY + ":de.hdi.changelogs", entry.get(ChangeEntry.KEY_LOCK_ID));
+	}
+
+	@Test
+	void shouldNotCommitChangeLogAfterLockHasBeenTakenOver() throws Exception {
+
+		// given
+		MongoClient mongoClient = EmbeddedMongoDBHelper.startReplicaSetClient();
+		try {
+			MongoDatabase db = mongoClient.getDatabase(MongoBumblebeeTest.DB_NAME);
+			db.drop();
+			ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+					MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+			dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+			assertTrue(dao.acquireProcessLock());
+			ChangeEntry changeEntry = new ChangeEntry("fenced", "testuser", new Date(), "de.hdi.FencedChangeLog", "fenced", null);
+			changeEntry.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+			changeEntry.finished(ChangeEntry.OUTCOME_SUCCESS);
+			// another process takes the lock over
+			db.getCollection(MongoBumblebeeTest.LOCK_COLLECTION_NAME).updateOne(new Document(), new Document("$set", new Document("owner", "other")).append("$inc", new Document("token", 1L)));
+
+			// when
+			assertThrows(MongoBumblebeeLockException.class, () -> dao.save(changeEntry));
+
+			// then
+			assertEquals(0, db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME).countDocuments());
+		} finally {
+			EmbeddedMongoDBHelper.stopMongoClient(mongoClient);
+		}
+	}
+
+	@Test
+	void shouldAnswerIsNewChangeFromPreloadedChangeLog() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME).drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.setPreloadChangeLog(true);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		ChangeEntry applied = new ChangeEntry("preload1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		ChangeEntry pending = new ChangeEntry("preload2", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME).insertOne(applied.buildFullDBObject());
+
+		// when
+		dao.loadChangeLog();
+
+		// then
+		assertFalse(dao.isNewChange(applied));
+		assertTrue(dao.isNewChange(pending));
+		// and
+		dao.save(pending);
+		assertFalse(dao.isNewChange(pending));
+	}
+
+	@Test
+	void shouldFetchAppliedChangeEntries() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME).drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		ChangeEntry applied = new ChangeEntry("fetch1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME).insertOne(applied.buildFullDBObject());
+
+		// when
+		Set<String> appliedChangeEntries = dao.fetchAppliedChangeEntries();
+
+		// then
+		assertEquals(Set.of(ChangeEntryDao.changeLogKey("fetch1", MongoBumblebeeTest.USER)), appliedChangeEntries);
+	}
+
+	@Test
+	void shouldStoreFingerprint() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		db.getCollection(MongoBumblebee.MB_PREFIX + "metadata").drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		// when
+		boolean upToDateBefore = dao.isFingerprintUpToDate("fingerprint1");
+		dao.saveFingerprint("fingerprint1");
+		dao.saveFingerprint("fingerprint2");
+
+		// then
+		assertFalse(upToDateBefore);
+		assertFalse(dao.isFingerprintUpToDate("fingerprint1"));
+		assertTrue(dao.isFingerprintUpToDate("fingerprint2"));
+		assertEquals(1, db.getCollection(MongoBumblebee.MB_PREFIX + "metadata").countDocuments());
+	}
+
+	@Test
+	void shouldTreatPartialChangeSetsAsPending() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		MongoCollection<Document> changeLog = db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		changeLog.drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		ChangeEntry interrupted = new ChangeEntry("partial1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		dao.saveCheckpoint(interrupted, new Document(ChangeSetCheckpoint.KEY_LAST_ID, 42).append(ChangeSetCheckpoint.KEY_PROCESSED, 43L));
+
+		// when
+		ChangeEntry resumed = new ChangeEntry("partial1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		boolean pending = dao.isNewChange(resumed);
+		Document checkpoint = dao.findCheckpoint(resumed);
+		Set<String> applied = dao.fetchAppliedChangeEntries();
+		dao.save(resumed);
+
+		// then
+		assertTrue(pending);
+		assertEquals(42, checkpoint.get(ChangeSetCheckpoint.KEY_LAST_ID));
+		assertTrue(applied.isEmpty());
+		assertFalse(dao.isNewChange(resumed));
+		assertEquals(1, changeLog.countDocuments());
+		assertEquals(ChangeEntry.OUTCOME_SUCCESS, changeLog.find().first().get(ChangeEntry.KEY_OUTCOME));
+	}
+
+	@Test
+	void shouldTreatFailedChangeSetsAsPendingAndKeepTheirCheckpoint() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		MongoCollection<Document> changeLog = db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		changeLog.drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		ChangeEntry failed = new ChangeEntry("failed1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		dao.saveCheckpoint(failed, new Document(ChangeSetCheckpoint.KEY_LAST_ID, 42));
+		failed.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+		failed.finished(ChangeEntry.OUTCOME_FAILED);
+
+		// when
+		dao.saveFailure(failed);
+
+		// then
+		ChangeEntry retried = new ChangeEntry("failed1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null);
+		assertTrue(dao.isNewChange(retried));
+		assertTrue(dao.fetchAppliedChangeEntries().isEmpty());
+		assertEquals(42, dao.findCheckpoint(retried).get(ChangeSetCheckpoint.KEY_LAST_ID));
+		Document entry = changeLog.find().first();
+		assertEquals(ChangeEntry.OUTCOME_FAILED, entry.get(ChangeEntry.KEY_OUTCOME));
+		assertEquals(LockOwner.HOST, entry.get(ChangeEntry.KEY_HOST));
+
+		// when
+		retried.started(LockOwner.HOST, dao.getLockOwner(), dao.getLockId(), dao.getLockToken());
+		retried.finished(ChangeEntry.OUTCOME_SUCCESS);
+		dao.save(retried);
+
+		// then
+		assertFalse(dao.isNewChange(retried));
+		assertEquals(1, changeLog.countDocuments());
+	}
+
+	@Test
+	void shouldFindChangeLogHistoryAndSlowestChangeSets() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		MongoCollection<Document> changeLog = db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		changeLog.drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		changeLog.insertOne(executedEntry("history1", 1_000L, 100L));
+		changeLog.insertOne(executedEntry("history2", 2_000L, 5_000L));
+		changeLog.insertOne(executedEntry("history3", 3_000L, 300L));
+		changeLog.insertOne(new ChangeEntry("history4", MongoBumblebeeTest.USER, new Date(4_000L), "changeLogClass", "changeSetMethod", null).buildFullDBObject());
+
+		// when
+		List<ChangeEntry> history = dao.findChangeLogHistory(new Date(2_000L), 0);
+		List<ChangeEntry> slowest = dao.findSlowestChangeSets(null, 2);
+
+		// then
+		assertEquals(List.of("history4", "history3", "history2"), history.stream().map(ChangeEntry::getChangeId).toList());
+		assertEquals(List.of("history2", "history3"), slowest.stream().map(ChangeEntry::getChangeId).toList());
+		assertEquals(5_000L, slowest.get(0).getDurationMillis());
+		assertEquals("host1", slowest.get(0).getHost());
+		assertEquals("result", slowest.get(0).getResult());
+	}
+
+	private static Document executedEntry(String changeId, long timestamp, long durationMillis) {
+		return new Document(ChangeEntry.KEY_CHANGEID, changeId)
+				.append(ChangeEntry.KEY_AUTHOR, MongoBumblebeeTest.USER)
+				.append(ChangeEntry.KEY_TIMESTAMP, new Date(timestamp))
+				.append(ChangeEntry.KEY_STARTED_AT, new Date(timestamp))
+				.append(ChangeEntry.KEY_FINISHED_AT, new Date(timestamp + durationMillis))
+				.append(ChangeEntry.KEY_DURATION, durationMillis)
+				.append(ChangeEntry.KEY_HOST, "host1")
+				.append(ChangeEntry.KEY_RETURNVALUE, "result")
+				.append(ChangeEntry.KEY_OUTCOME, ChangeEntry.OUTCOME_SUCCESS);
+	}
+
+	@Test
+	void shouldBufferChangeLogWritesUntilBatchIsFull() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+		MongoCollection<Document> changeLog = db.getCollection(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME);
+		changeLog.drop();
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.setChangeLogBatchSize(3);
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		// when
+		dao.save(new ChangeEntry("batch1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null));
+		dao.save(new ChangeEntry("batch2", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null));
+
+		// then
+		assertEquals(0, changeLog.countDocuments());
+
+		// when
+		dao.save(new ChangeEntry("batch3", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null));
+		dao.save(new ChangeEntry("batch1", MongoBumblebeeTest.USER, new Date(), "changeLogClass", "changeSetMethod", null));
+
+		// then
+		assertEquals(3, changeLog.countDocuments());
+
+		// when
+		dao.releaseProcessLock();
+
+		// then
+		assertEquals(3, changeLog.countDocuments());
+	}
+
+	@Test
+	void shouldRefreshLockWhileHeld() throws Exception {
+
+		// given
+		MongoClient mongoClient = mock(MongoClient.class);
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		when(mongoClient.getDatabase(anyString())).thenReturn(db);
+
+		ChangeEntryDao dao = new ChangeEntryDao(MongoBumblebeeTest.CHANGELOG_COLLECTION_NAME, MongoBumblebeeTest.LOCK_COLLECTION_NAME, MongoBumblebee.DEFAULT_WAIT_FOR_LOCK,
+				MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, MongoBumblebee.DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, MongoBumblebee.DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+		dao.setChangeLogLockHeartbeatInterval(1);
+
+		LockDao lockDao = mock(LockDao.class);
+		when(lockDao.acquireLock(any(MongoDatabase.class))).thenReturn(true);
+		dao.setLockDao(lockDao);
+
+		dao.connectMongoDb(mongoClient, MongoBumblebeeTest.DB_NAME);
+
+		// when
+		dao.acquireProcessLock();
+
+		// then
+		verify(lockDao, timeout(3000).atLeastOnce()).updateLock(db);
+
+		// when
+		dao.releaseProcessLock();
+		reset(lockDao);
+		Thread.sleep(1500);
+
+		// then
+		verify(lockDao, never()).updateLock(any(MongoDatabase.class));
+	}
+
 }
@@ -0,0 +1,116 @@
+package de.hdi.mongobumblebee.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.DeclaredIndexes;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.utils.EmbeddedMongoDBHelper;
+
+class DeclaredIndexDaoTest {
+
+	private static final String COLLECTION_NAME = "customers";
+
+	@Test
+	void shouldBuildMissingIndexesOnly() throws Exception {
+		// given
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		MongoCollection<Document> collection = db.getCollection(COLLECTION_NAME);
+		collection.drop();
+		collection.createIndex(Indexes.ascending("email"), new IndexOptions().unique(true));
+		DeclaredIndexes declaredIndexes = new DeclaredIndexes()
+				.add(COLLECTION_NAME, Indexes.ascending("email"), new IndexOptions().unique(true))
+				.add(COLLECTION_NAME, Indexes.compoundIndex(Indexes.ascending("lastName"), Indexes.descending("firstName")))
+				.add(COLLECTION_NAME, Indexes.ascending("city"), new IndexOptions().name("byCity"));
+
+		// when
+		Document result = new DeclaredIndexDao(db, null).apply(declaredIndexes);
+		Document secondResult = new DeclaredIndexDao(db, null).apply(declaredIndexes);
+
+		// then
+		assertEquals(List.of("customers.lastName_1_firstName_-1", "customers.byCity"), result.getList(DeclaredIndexDao.KEY_CREATED, String.class));
+		assertEquals(List.of("customers.email_1"), result.getList(DeclaredIndexDao.KEY_EXISTING, String.class));
+		assertTrue(secondResult.getList(DeclaredIndexDao.KEY_CREATED, String.class).isEmpty());
+		assertEquals(3, secondResult.getList(DeclaredIndexDao.KEY_EXISTING, String.class).size());
+		assertEquals(4, collection.listIndexes().into(new ArrayList<>()).size());
+	}
+
+	@Test
+	void shouldFailIfIndexExistsWithOtherOptions() {
+		// given
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		MongoCollection<Document> collection = db.getCollection(COLLECTION_NAME);
+		collection.drop();
+		collection.createIndex(Indexes.ascending("email"));
+		DeclaredIndexes declaredIndexes = new DeclaredIndexes().add(COLLECTION_NAME, Indexes.ascending("email"), new IndexOptions().unique(true));
+
+		// when
+		DeclaredIndexDao dao = new DeclaredIndexDao(db, null);
+
+		// then
+		assertThrows(MongoBumblebeeChangeSetException.class, () -> dao.apply(declaredIndexes));
+	}
+
+	@Test
+	void shouldCompareKeysInOrder() {
+		assertTrue(DeclaredIndexDao.sameKeys(BsonDocument.parse("{a: 1, b: -1}"), BsonDocument.parse("{a: 1.0, b: NumberLong(-1)}")));
+		assertFalse(DeclaredIndexDao.sameKeys(BsonDocument.parse("{a: 1, b: -1}"), BsonDocument.parse("{b: -1, a: 1}")));
+		assertFalse(DeclaredIndexDao.sameKeys(BsonDocument.parse("{a: 1}"), BsonDocument.parse("{a: -1}")));
+		assertTrue(DeclaredIndexDao.sameKeys(BsonDocument.parse("{location: '2dsphere'}"), BsonDocument.parse("{location: '2dsphere'}")));
+	}
+
+	@Test
+	void shouldNameIndexesLikeMongoDb() {
+		assertEquals("lastName_1_firstName_-1", DeclaredIndexDao.indexName(BsonDocument.parse("{lastName: 1, firstName: -1}")));
+		assertEquals("location_2dsphere", DeclaredIndexDao.indexName(BsonDocument.parse("{location: '2dsphere'}")));
+	}
+
+	@Test
+	void shouldCompareIndexOptions() {
+		Document index = Document.parse("{v: 2, key: {email: 1}, name: 'email_1', unique: true, expireAfterSeconds: 3600}");
+
+		assertTrue(DeclaredIndexDao.sameOptions(index, new IndexOptions().unique(true).expireAfter(3600L, TimeUnit.SECONDS), null));
+		assertFalse(DeclaredIndexDao.sameOptions(index, new IndexOptions().unique(true), null));
+		assertFalse(DeclaredIndexDao.sameOptions(index, new IndexOptions().unique(true).expireAfter(3600L, TimeUnit.SECONDS), "byEmail"));
+	}
+
+	@Test
+	void shouldCompareNumericIndexFlags() {
+		Document index = Document.parse("{v: 2, key: {email: 1}, name: 'email_1', unique: 1, sparse: 0}");
+
+		assertTrue(DeclaredIndexDao.sameOptions(index, new IndexOptions().unique(true), null));
+		assertFalse(DeclaredIndexDao.sameOptions(index, new IndexOptions().unique(true).sparse(true), null));
+	}
+
+	@Test
+	void shouldNameCopyOfDeclaredOptions() {
+		// given
+		IndexOptions options = new IndexOptions().unique(true).expireAfter(3600L, TimeUnit.SECONDS).partialFilterExpression(Document.parse("{active: true}"));
+
+		// when
+		IndexOptions named = DeclaredIndexDao.named(options, "email_1");
+
+		// then
+		assertEquals("email_1", named.getName());
+		assertNull(options.getName());
+		assertTrue(DeclaredIndexDao.sameOptions(Document.parse("{name: 'email_1', unique: true, expireAfterSeconds: 3600, partialFilterExpression: {active: true}}"), named, "email_1"));
+	}
+
+}
@@ -1,9 +1,13 @@
 package de.hdi.mongobumblebee.dao;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -107,6 +111,85 @@ class LockDaoTest {
 		assertTrue(dao.isLockHeld(db));
 	}
 
+	@Test
+	void shouldTakeOverExpiredLockWithGreaterFencingToken() throws Exception {
+
+		// given
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		LockDao dao = createDao(db);
+		dao.setLeaseTime(Duration.ZERO);
+		LockDao otherDao = new LockDao(MongoBumblebeeTest.LOCK_COLLECTION_NAME, "other");
+		dao.acquireLock(db);
+		Thread.sleep(10);
+
+		// when
+		boolean hasLock = otherDao.acquireLock(db);
+
+		// then
+		assertTrue(hasLock);
+		assertTrue(otherDao.getToken() > dao.getToken());
+		assertFalse(dao.isLockOwned(db));
+		assertTrue(otherDao.isLockOwned(db));
+		otherDao.releaseLock(db);
+	}
+
+	@Test
+	void shouldNotReleaseLockOfOtherOwner() {
+
+		// given
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		LockDao dao = createDao(db);
+		LockDao otherDao = new LockDao(MongoBumblebeeTest.LOCK_COLLECTION_NAME, "other");
+		otherDao.acquireLock(db);
+
+		// when
+		dao.releaseLock(db);
+
+		// then
+		assertTrue(dao.isLockHeld(db));
+		assertTrue(otherDao.isLockOwned(db));
+		otherDao.releaseLock(db);
+	}
+
+	@Test
+	void shouldIncreaseFencingTokenWithEveryLock() {
+
+		// given
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		LockDao dao = createDao(db);
+		dao.acquireLock(db);
+		long firstToken = dao.getToken();
+		dao.releaseLock(db);
+
+		// when
+		dao.acquireLock(db);
+
+		// then
+		assertEquals(firstToken + 1, dao.getToken());
+		assertNull(new LockDao(MongoBumblebeeTest.LOCK_COLLECTION_NAME).getToken());
+	}
+
+	@Test
+	void shouldNotExcludeLocksWithDifferentKeys() {
+
+		// given
+		MongoDatabase db = EmbeddedMongoDBHelper.startMongoClient().getDatabase(MongoBumblebeeTest.DB_NAME);
+		LockDao dao = createDao(db);
+		LockDao otherDao = new LockDao(MongoBumblebeeTest.LOCK_COLLECTION_NAME, "other");
+		otherDao.setLockKey("LOCK:orders");
+		dao.acquireLock(db);
+
+		// when
+		boolean hasLock = otherDao.acquireLock(db);
+		dao.releaseLock(db);
+
+		// then
+		assertTrue(hasLock);
+		assertFalse(dao.isLockHeld(db));
+		assertTrue(otherDao.isLockHeld(db));
+		otherDao.releaseLock(db);
+	}
+
 	@AfterEach
 	void cleanup() {
 		
@@ -0,0 +1,183 @@
+package de.hdi.mongobumblebee.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.Profile;
+
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.utils.ChangeLogIndex;
+import de.hdi.mongobumblebee.utils.ChangeLogIndex.IndexedChangeLog;
+import de.hdi.mongobumblebee.utils.ChangeService;
+
+class ChangeLogIndexProcessorTest {
+
+	private static final String SOURCE = """
+			package com.example.changelogs;
+
+			import org.springframework.context.annotation.Profile;
+			import de.hdi.mongobumblebee.changeset.ChangeLog;
+			import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+			@ChangeLog(order = "001")
+			@Profile({"dev", "!pro"})
+			public class IndexedChangeLog {
+
+				@ChangeSet(author = "testuser", id = "second", order = "02", runAlways = true)
+				public void second() {
+				}
+
+				@ChangeSet(author = "testuser", id = "first", order = "01")
+				@Profile("dev")
+				public void first() {
+				}
+
+				public void noChangeSet() {
+				}
+			}
+			""";
+
+	private static final String UNINDEXED_SOURCE = """
+			package com.example.changelogs;
+
+			import de.hdi.mongobumblebee.changeset.ChangeLog;
+			import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+			@ChangeLog(order = "002")
+			public class UnindexedChangeLog {
+
+				@ChangeSet(author = "testuser", id = "unindexed", order = "01")
+				public void unindexed() {
+				}
+			}
+			""";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void shouldWriteChangeLogIndex() throws Exception {
+		// given
+		Path classes = compile();
+
+		// when
+		List<IndexedChangeLog> changeLogs;
+		try (InputStream in = Files.newInputStream(classes.resolve(ChangeLogIndex.INDEX_LOCATION))) {
+			changeLogs = ChangeLogIndex.read(in);
+		}
+
+		// then
+		assertEquals(1, changeLogs.size());
+		IndexedChangeLog changeLog = changeLogs.get(0);
+		assertEquals("com.example.changelogs.IndexedChangeLog", changeLog.getClassName());
+		assertEquals("001", changeLog.getOrder());
+		assertEquals(List.of("dev", "!pro"), changeLog.getProfiles());
+		assertFalse(Files.readString(classes.resolve(ChangeLogIndex.INDEX_LOCATION)).contains("changeset"));
+	}
+
+	@Test
+	void shouldRejectMalformedIndexLines() {
+		// given
+		String index = "changelog\tcom.example.changelogs.IndexedChangeLog\t001\tdev\n"
+				+ "changeset\tfirst\tfirst\ttestuser\t01\tfalse\tdev\n";
+
+		// when
+		IOException e = assertThrows(IOException.class, () -> ChangeLogIndex.read(new ByteArrayInputStream(index.getBytes(StandardCharsets.UTF_8))));
+
+		// then
+		assertTrue(e.getMessage().startsWith("Malformed changelog index line"), e.getMessage());
+	}
+
+	@Test
+	void shouldFetchChangeLogsFromIndex() throws Exception {
+		// given
+		Path classes = compile();
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, getClass().getClassLoader())) {
+			Thread.currentThread().setContextClassLoader(classLoader);
+
+			// when
+			List<Class<?>> changeLogs = new ChangeService("com.example.changelogs", List.of("dev")).fetchChangeLogs();
+			List<Class<?>> otherPackage = new ChangeService("com.example.other", List.of("dev")).fetchChangeLogs();
+
+			// then
+			assertEquals(1, changeLogs.size());
+			assertEquals("com.example.changelogs.IndexedChangeLog", changeLogs.get(0).getName());
+			assertTrue(otherPackage.isEmpty());
+			assertFalse(ChangeLogIndex.load(classLoader).isEmpty());
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+	}
+
+	@Test
+	void shouldScanClasspathRootsWithoutIndex() throws Exception {
+		// given
+		Path classes = compile();
+		Path unindexedClasses = compile("UnindexedChangeLog", UNINDEXED_SOURCE, "unindexed-classes");
+		Files.delete(unindexedClasses.resolve(ChangeLogIndex.INDEX_LOCATION));
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL(), unindexedClasses.toUri().toURL() },
+				getClass().getClassLoader())) {
+			Thread.currentThread().setContextClassLoader(classLoader);
+
+			// when
+			List<Class<?>> changeLogs = new ChangeService("com.example.changelogs", List.of("dev")).fetchChangeLogs();
+
+			// then
+			assertEquals(List.of("com.example.changelogs.IndexedChangeLog", "com.example.changelogs.UnindexedChangeLog"),
+					changeLogs.stream().map(Class::getName).toList());
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+	}
+
+	private Path compile() throws Exception {
+		return compile("IndexedChangeLog", SOURCE, "classes");
+	}
+
+	private Path compile(String className, String content, String output) throws Exception {
+		Path sources = Files.createDirectories(tempDir.resolve("src/com/example/changelogs"));
+		Path classes = Files.createDirectories(tempDir.resolve(output));
+		Path source = Files.writeString(sources.resolve(className + ".java"), content);
+
+		String classpath = String.join(File.pathSeparator, location(ChangeLog.class), location(Profile.class));
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(source);
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+					List.of("-classpath", classpath, "-d", classes.toString(), "-proc:full"), null, units);
+			task.setProcessors(List.of(new ChangeLogIndexProcessor()));
+			assertTrue(task.call());
+		}
+		return classes;
+	}
+
+	private static String location(Class<?> type) throws Exception {
+		return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+	}
+
+}
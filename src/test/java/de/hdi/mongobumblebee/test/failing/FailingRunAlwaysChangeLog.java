@@ -0,0 +1,15 @@
+package de.hdi.mongobumblebee.test.failing;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "1")
+public class FailingRunAlwaysChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "failingRunAlways1", order = "01", runAlways = true)
+	public void failingRunAlwaysChangeSet() {
+		throw new IllegalStateException("failing runAlways changeset");
+	}
+
+}
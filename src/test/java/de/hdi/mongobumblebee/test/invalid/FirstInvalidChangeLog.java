@@ -0,0 +1,33 @@
+package de.hdi.mongobumblebee.test.invalid;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.batch.BatchMigrator;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+import de.hdi.mongobumblebee.changeset.DeclaredIndexes;
+
+@ChangeLog(order = "1")
+public class FirstInvalidChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "invalid1", order = "01")
+	public void testChangeSet() {
+		System.out.println("invoked invalid1");
+	}
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "invalid2", order = "01")
+	public void testChangeSet2(String notResolvable) {
+		System.out.println("invoked invalid2");
+	}
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "invalid3", order = "02", transactional = true)
+	public void testChangeSet3(BatchMigrator batchMigrator) {
+		System.out.println("invoked invalid3");
+	}
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "invalid4", order = "03", transactional = true)
+	public DeclaredIndexes testChangeSet4() {
+		System.out.println("invoked invalid4");
+		return new DeclaredIndexes();
+	}
+
+}
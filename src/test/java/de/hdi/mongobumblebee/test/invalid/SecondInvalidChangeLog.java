@@ -0,0 +1,15 @@
+package de.hdi.mongobumblebee.test.invalid;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "1")
+public class SecondInvalidChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "invalid1", order = "01")
+	public void testChangeSet() {
+		System.out.println("invoked invalid1 again");
+	}
+
+}
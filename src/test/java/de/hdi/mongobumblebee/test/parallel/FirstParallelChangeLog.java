@@ -0,0 +1,22 @@
+package de.hdi.mongobumblebee.test.parallel;
+
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "1", parallelGroup = "indexes")
+public class FirstParallelChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "firstParallel1", order = "01")
+	public void testChangeSet(MongoDatabase mongoDatabase) {
+		System.out.println("invoked firstParallel1 on " + Thread.currentThread().getName());
+	}
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "firstParallel2", order = "02")
+	public void testChangeSet2() {
+		System.out.println("invoked firstParallel2 on " + Thread.currentThread().getName());
+	}
+
+}
@@ -0,0 +1,22 @@
+package de.hdi.mongobumblebee.test.parallel;
+
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "3")
+public class ThirdParallelChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "thirdParallel1", order = "01")
+	public void testChangeSet(MongoDatabase mongoDatabase) {
+		System.out.println("invoked thirdParallel1 on " + Thread.currentThread().getName());
+	}
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "thirdParallel2", order = "02")
+	public void testChangeSet2() {
+		System.out.println("invoked thirdParallel2 on " + Thread.currentThread().getName());
+	}
+
+}
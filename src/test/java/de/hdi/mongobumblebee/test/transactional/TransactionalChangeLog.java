@@ -0,0 +1,19 @@
+package de.hdi.mongobumblebee.test.transactional;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "1")
+public class TransactionalChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "transactional1", order = "01", transactional = true)
+	public void transactionalChangeSet(MongoDatabase mongoDatabase) {
+		mongoDatabase.getCollection("transactional").insertOne(new Document("name", "transactional1"));
+	}
+
+}
@@ -0,0 +1,20 @@
+package de.hdi.mongobumblebee.test.transactionfailure;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.MongoBumblebeeTest;
+import de.hdi.mongobumblebee.changeset.ChangeLog;
+import de.hdi.mongobumblebee.changeset.ChangeSet;
+
+@ChangeLog(order = "1")
+public class FailingTransactionalChangeLog {
+
+	@ChangeSet(author = MongoBumblebeeTest.USER, id = "failingTransactional1", order = "01", transactional = true)
+	public void failingTransactionalChangeSet(MongoDatabase mongoDatabase) {
+		mongoDatabase.getCollection("transactional").insertOne(new Document("name", "failingTransactional1"));
+		throw new IllegalStateException("failing after the insert");
+	}
+
+}
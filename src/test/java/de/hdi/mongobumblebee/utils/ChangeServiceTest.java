@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.lang.reflect.Method;
 import java.util.List;
 
+import org.bson.Document;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -17,6 +18,12 @@ import de.hdi.mongobumblebee.changeset.ChangeEntry;
 import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
 import de.hdi.mongobumblebee.test.changelogs.AnotherMongoBumblebeeTestResource;
 import de.hdi.mongobumblebee.test.changelogs.MongoBumblebeeTestResource;
+import de.hdi.mongobumblebee.test.invalid.FirstInvalidChangeLog;
+import de.hdi.mongobumblebee.test.transactional.TransactionalChangeLog;
+import de.hdi.mongobumblebee.test.parallel.FirstParallelChangeLog;
+import de.hdi.mongobumblebee.test.parallel.SecondParallelChangeLog;
+import de.hdi.mongobumblebee.test.parallel.ThirdParallelChangeLog;
+import de.hdi.mongobumblebee.utils.MigrationPlan.PlannedChangeLog;
 
 /**
  * @author lstolowski
@@ -84,6 +91,19 @@ class ChangeServiceTest {
 		}
 	}
 
+	@Test
+	void shouldFindTransactionalMethod() throws Exception {
+		// given
+		ChangeService service = new ChangeService(TransactionalChangeLog.class.getPackage().getName());
+
+		// when
+		List<Method> foundMethods = service.fetchChangeSets(TransactionalChangeLog.class);
+
+		// then
+		assertTrue(service.isTransactionalChangeSet(foundMethods.get(0)));
+		assertFalse(service.isTransactionalChangeSet(MongoBumblebeeTestResource.class.getMethod("testChangeSet")));
+	}
+
 	@Test
 	void shouldCreateEntry() throws MongoBumblebeeChangeSetException {
 
@@ -106,6 +126,97 @@ class ChangeServiceTest {
 		}
 	}
 
+	@Test
+	void shouldRecordExecutionInEntry() throws MongoBumblebeeChangeSetException {
+
+		// given
+		String scanPackage = MongoBumblebeeTestResource.class.getPackage().getName();
+		ChangeService service = new ChangeService(scanPackage);
+		ChangeEntry entry = service.createChangeEntry(service.fetchChangeSets(MongoBumblebeeTestResource.class).get(0));
+
+		// when
+		entry.started("host1", "owner1", "mbblock/LOCK", 3L);
+		entry.finished(ChangeEntry.OUTCOME_SUCCESS);
+		entry.setResult("x".repeat(ChangeEntry.MAX_RETURN_VALUE_LENGTH + 1));
+		Document document = entry.buildFullDBObject();
+
+		// then
+		assertEquals(ChangeEntry.OUTCOME_SUCCESS, document.get(ChangeEntry.KEY_OUTCOME));
+		assertEquals("host1", document.get(ChangeEntry.KEY_HOST));
+		assertEquals("owner1", document.get(ChangeEntry.KEY_LOCK_OWNER));
+		assertEquals(3L, document.get(ChangeEntry.KEY_LOCK_TOKEN));
+		assertTrue(entry.buildFencedSearchQueryDBObject().containsKey("$or"));
+		assertNotNull(document.get(ChangeEntry.KEY_STARTED_AT));
+		assertTrue(document.getLong(ChangeEntry.KEY_DURATION) >= 0);
+		assertEquals(ChangeEntry.MAX_RETURN_VALUE_LENGTH + 3, document.getString(ChangeEntry.KEY_RETURNVALUE).length());
+		assertEquals(ChangeEntry.OUTCOME_FAILED, entry.buildFailedDBObject().get(ChangeEntry.KEY_OUTCOME));
+	}
+
+	@Test
+	void shouldGroupChangeLogsByParallelGroup() {
+		// given
+		String scanPackage = FirstParallelChangeLog.class.getPackage().getName();
+		ChangeService service = new ChangeService(scanPackage);
+
+		// when
+		List<List<Class<?>>> groups = service.groupByParallelGroup(service.fetchChangeLogs());
+
+		// then
+		assertEquals(List.of(List.of(FirstParallelChangeLog.class, SecondParallelChangeLog.class), List.of(ThirdParallelChangeLog.class)), groups);
+	}
+
+	@Test
+	void shouldCreateMigrationPlan() throws MongoBumblebeeChangeSetException {
+		// given
+		String scanPackage = FirstParallelChangeLog.class.getPackage().getName();
+		ChangeService service = new ChangeService(scanPackage);
+
+		// when
+		MigrationPlan plan = service.createMigrationPlan(null);
+
+		// then
+		assertEquals(2, plan.getGroups().size());
+		assertEquals(List.of(FirstParallelChangeLog.class, SecondParallelChangeLog.class, ThirdParallelChangeLog.class),
+				plan.getChangeLogs().stream().map(PlannedChangeLog::getChangeLogClass).toList());
+		assertEquals(2, plan.getChangeLogs().get(0).getChangeSets().size());
+	}
+
+	@Test
+	void shouldFingerprintMigrationPlan() throws MongoBumblebeeChangeSetException {
+		// given
+		ChangeService parallelService = new ChangeService(FirstParallelChangeLog.class.getPackage().getName());
+		ChangeService service = new ChangeService(MongoBumblebeeTestResource.class.getPackage().getName());
+
+		// when
+		MigrationPlan parallelPlan = parallelService.createMigrationPlan(null);
+		MigrationPlan plan = service.createMigrationPlan(null);
+
+		// then
+		assertEquals(64, parallelPlan.getFingerprint().length());
+		assertEquals(parallelPlan.getFingerprint(), parallelService.createMigrationPlan(null).getFingerprint());
+		assertFalse(parallelPlan.getFingerprint().equals(plan.getFingerprint()));
+		assertFalse(parallelPlan.isRunAlways());
+		assertTrue(plan.isRunAlways());
+	}
+
+	@Test
+	void shouldReportAllProblemsOfInvalidChangeLogs() {
+		// given
+		String scanPackage = FirstInvalidChangeLog.class.getPackage().getName();
+		ChangeService service = new ChangeService(scanPackage);
+
+		// when
+		MongoBumblebeeChangeSetException e = Assertions.assertThrows(MongoBumblebeeChangeSetException.class, () -> service.createMigrationPlan(null));
+
+		// then
+		assertTrue(e.getMessage().contains("have the same order '1'"));
+		assertTrue(e.getMessage().contains("Duplicated changeset id 'invalid1'"));
+		assertTrue(e.getMessage().contains("have the same order '01'"));
+		assertTrue(e.getMessage().contains("testChangeSet2 has wrong arguments list"));
+		assertTrue(e.getMessage().contains("FirstInvalidChangeLog.testChangeSet3 can't be transactional"));
+		assertTrue(e.getMessage().contains("FirstInvalidChangeLog.testChangeSet4 can't be transactional, declared indexes"));
+	}
+
 	@Test
 	void shouldFailOnDuplicatedChangeSets() throws MongoBumblebeeChangeSetException {
 		String scanPackage = ChangeLogWithDuplicate.class.getPackage().getName();
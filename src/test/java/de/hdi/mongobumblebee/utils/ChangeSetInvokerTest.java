@@ -0,0 +1,172 @@
+package de.hdi.mongobumblebee.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+
+import de.hdi.mongobumblebee.batch.BatchMigrator;
+import de.hdi.mongobumblebee.changeset.ChangeSetCheckpoint;
+import de.hdi.mongobumblebee.exception.MongoBumblebeeChangeSetException;
+import de.hdi.mongobumblebee.resources.EnvironmentMock;
+import de.hdi.mongobumblebee.utils.ChangeSetInvoker.ChangeSetContext;
+
+class ChangeSetInvokerTest {
+
+	public static class SomeBean {
+	}
+
+	public static class ChangeLogMethods {
+
+		public void noArguments() {
+		}
+
+		public List<Object> templateAndEnvironment(MongoTemplate template, Environment environment) {
+			return List.of(template, environment);
+		}
+
+		public Object environmentAndDatabase(Environment environment, MongoDatabase database) {
+			return database;
+		}
+
+		public BatchMigrator batchMigrator(BatchMigrator migrator) {
+			return migrator;
+		}
+
+		public ChangeSetCheckpoint checkpoint(MongoDatabase database, ChangeSetCheckpoint checkpoint) {
+			return checkpoint;
+		}
+
+		public ClientSession session(MongoTemplate template, ClientSession session) {
+			return session;
+		}
+
+		public SomeBean bean(SomeBean bean) {
+			return bean;
+		}
+
+		public void failing() {
+			throw new IllegalStateException("failed");
+		}
+	}
+
+	private final MongoTemplate template = mock(MongoTemplate.class);
+
+	private final MongoDatabase database = mock(MongoDatabase.class);
+
+	private final Environment environment = new EnvironmentMock();
+
+	private final BatchMigrator batchMigrator = new BatchMigrator(database);
+
+	private final ChangeSetContext context = ChangeSetContext.builder()
+			.mongoTemplate(template)
+			.mongoDatabase(database)
+			.environment(environment)
+			.batchMigrator(batchMigrator)
+			.build();
+
+	@Test
+	void shouldInvokeMethodWithoutArguments() throws Exception {
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("noArguments"), null);
+
+		assertNull(invoker.invoke(new ChangeLogMethods(), context));
+	}
+
+	@Test
+	void shouldResolveArgumentsByType() throws Exception {
+		ChangeSetInvoker templateInvoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("templateAndEnvironment", MongoTemplate.class, Environment.class), null);
+		ChangeSetInvoker databaseInvoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("environmentAndDatabase", Environment.class, MongoDatabase.class), null);
+
+		assertEquals(List.of(template, environment), templateInvoker.invoke(new ChangeLogMethods(), context));
+		assertSame(database, databaseInvoker.invoke(new ChangeLogMethods(), context));
+	}
+
+	@Test
+	void shouldResolveBatchMigrator() throws Exception {
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("batchMigrator", BatchMigrator.class), null);
+
+		assertSame(batchMigrator, invoker.invoke(new ChangeLogMethods(), context));
+	}
+
+	@Test
+	void shouldResolveCheckpoint() throws Exception {
+		ChangeSetCheckpoint checkpoint = new ChangeSetCheckpoint(null, document -> { });
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("checkpoint", MongoDatabase.class, ChangeSetCheckpoint.class), null);
+
+		assertTrue(invoker.hasParameter(ChangeSetCheckpoint.class));
+		assertFalse(invoker.hasParameter(Environment.class));
+		assertSame(checkpoint, invoker.invoke(new ChangeLogMethods(), context.toBuilder().checkpoint(checkpoint).build()));
+	}
+
+	@Test
+	void shouldResolveSession() throws Exception {
+		ClientSession session = mock(ClientSession.class);
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("session", MongoTemplate.class, ClientSession.class), null);
+
+		assertNull(invoker.invoke(new ChangeLogMethods(), context));
+		assertSame(session, invoker.invoke(new ChangeLogMethods(), context.toBuilder().session(session).build()));
+	}
+
+	@Test
+	void shouldResolveSpringBeans() throws Exception {
+		StaticApplicationContext applicationContext = new StaticApplicationContext();
+		applicationContext.getBeanFactory().registerSingleton("someBean", new SomeBean());
+		applicationContext.refresh();
+
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("bean", SomeBean.class), applicationContext);
+
+		assertSame(applicationContext.getBean(SomeBean.class), invoker.invoke(new ChangeLogMethods(), context.toBuilder().applicationContext(applicationContext).build()));
+	}
+
+	@Test
+	void shouldFailOnAmbiguousSpringBeans() {
+		StaticApplicationContext applicationContext = new StaticApplicationContext();
+		applicationContext.registerSingleton("someBean", SomeBean.class);
+		applicationContext.registerSingleton("otherBean", SomeBean.class);
+		applicationContext.refresh();
+
+		MongoBumblebeeChangeSetException e = assertThrows(MongoBumblebeeChangeSetException.class,
+				() -> ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("bean", SomeBean.class), applicationContext));
+		assertTrue(e.getMessage().contains("someBean, otherBean"), e.getMessage());
+	}
+
+	@Test
+	void shouldResolvePrimarySpringBean() throws Exception {
+		StaticApplicationContext applicationContext = new StaticApplicationContext();
+		applicationContext.registerSingleton("someBean", SomeBean.class);
+		applicationContext.registerBean("primaryBean", SomeBean.class, definition -> definition.setPrimary(true));
+		applicationContext.refresh();
+
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("bean", SomeBean.class), applicationContext);
+
+		assertSame(applicationContext.getBean("primaryBean"), invoker.invoke(new ChangeLogMethods(), context.toBuilder().applicationContext(applicationContext).build()));
+	}
+
+	@Test
+	void shouldFailOnUnresolvableArgument() {
+		assertThrows(MongoBumblebeeChangeSetException.class, () -> ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("bean", SomeBean.class), null));
+	}
+
+	@Test
+	void shouldWrapExceptionOfChangeSet() throws Exception {
+		ChangeSetInvoker invoker = ChangeSetInvoker.bind(ChangeLogMethods.class.getMethod("failing"), null);
+
+		InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> invoker.invoke(new ChangeLogMethods(), context));
+		assertEquals("failed", e.getTargetException().getMessage());
+	}
+
+}
@@ -1,9 +1,14 @@
 package de.hdi.mongobumblebee.utils;
 
+import java.util.List;
+
+import org.bson.Document;
+
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 
 import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.mongo.transitions.Mongod;
 import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
@@ -13,8 +18,12 @@ import de.flapdoodle.reverse.transitions.Start;
 
 public class EmbeddedMongoDBHelper {
 	
+	private static final String REPLICA_SET_NAME = "rs0";
+	
 	private static TransitionWalker.ReachedState<RunningMongodProcess> runningMongod;
 	
+	private static TransitionWalker.ReachedState<RunningMongodProcess> runningReplicaSet;
+	
 	public static MongoClient startMongoClient() {
 		return startMongoClient(Version.Main.V7_0);
 	}
@@ -39,4 +48,40 @@ public class EmbeddedMongoDBHelper {
 		}
 	}
 	
+	/**
+	 * Starts a single node replica set, which supports transactions, in addition to the standalone server
+	 */
+	public static MongoClient startReplicaSetClient() {
+		if ( runningReplicaSet == null ) {
+			runningReplicaSet = Mongod.instance().transitions(Version.Main.V7_0)
+				.replace(Start.to(MongodArguments.class).initializedWith(MongodArguments.defaults()
+						.withReplication(Storage.of(REPLICA_SET_NAME, 0))))
+				.walker()
+				.initState(StateID.of(RunningMongodProcess.class));
+			String host = runningReplicaSet.current().getServerAddress().getHost() + ":" + runningReplicaSet.current().getServerAddress().getPort();
+			try (MongoClient client = MongoClients.create("mongodb://" + host + "/?directConnection=true")) {
+				client.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document("_id", REPLICA_SET_NAME)
+						.append("members", List.of(new Document("_id", 0).append("host", host)))));
+				awaitPrimary(client);
+			}
+		}
+		return MongoClients.create(String.format("mongodb://%s:%d/?replicaSet=%s", runningReplicaSet.current().getServerAddress().getHost(),
+				runningReplicaSet.current().getServerAddress().getPort(), REPLICA_SET_NAME));
+	}
+	
+	private static void awaitPrimary(MongoClient client) {
+		for (int i = 0; i < 100; i++) {
+			if ( client.getDatabase("admin").runCommand(new Document("hello", 1)).getBoolean("isWritablePrimary", false) ) {
+				return;
+			}
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+		throw new IllegalStateException("Replica set has no primary");
+	}
+	
 }